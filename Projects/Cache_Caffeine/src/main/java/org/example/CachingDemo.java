@@ -1,12 +1,36 @@
 package org.example;
 
+import org.example.config.BookCacheSettings;
+import org.example.load.KeyDistribution;
+import org.example.load.LoadGenerator;
+import org.example.load.LoadReport;
+import org.example.load.LoadSettings;
+import org.example.load.ReadPath;
 import org.example.model.Book;
 import org.example.repository.BookRepository;
+import org.example.repository.LatencyModel;
 import org.example.service.BookService;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 public class CachingDemo {
 
-    public static void main(String[] args) {
+    /*
+    Без аргументов - демонстрация кэшей по шагам.
+    С первым аргументом load - режим нагрузки (LoadGenerator), остальные аргументы в виде ключ=значение:
+      threads=64 duration=10 (секунд) requests=0 (0 - по времени) distribution=ZIPFIAN keys=10000
+      invalidate=0.0 (доля инвалидаций) cache=LOADING (SIMPLE, EXPIRING, LOADING, FRONT_TIER) latencyMs=1
+    Пример: mvn compile exec:java -Dexec.mainClass=org.example.CachingDemo -Dexec.args="load threads=200 duration=30 invalidate=0.01"
+    */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 0 && args[0].equals("load")) {
+            runLoad(args);
+            return;
+        }
+
         BookRepository bookRepository = new BookRepository();
         BookService bookService = new BookService(bookRepository);
 
@@ -52,4 +76,47 @@ public class CachingDemo {
         System.out.println("Время выполнения: " + (System.currentTimeMillis() - startTime) + "мс");
         System.out.println("Книга: " + book1);
     }
-}
\ No newline at end of file
+
+    private static void runLoad(String[] args) throws InterruptedException {
+        LoadSettings loadSettings = new LoadSettings();
+        long latencyMillis = 1;
+        for (int i = 1; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("Expected key=value, got: " + args[i]);
+            }
+            String value = option[1];
+            switch (option[0]) {
+                case "threads" -> loadSettings.setThreads(Integer.parseInt(value));
+                case "duration" -> loadSettings.setDuration(Duration.ofSeconds(Long.parseLong(value)));
+                case "requests" -> loadSettings.setRequestCount(Long.parseLong(value));
+                case "distribution" -> loadSettings.setDistribution(KeyDistribution.valueOf(value.toUpperCase()));
+                case "keys" -> loadSettings.setKeySpace(Integer.parseInt(value));
+                case "invalidate" -> loadSettings.setInvalidateRatio(Double.parseDouble(value));
+                case "cache" -> loadSettings.setReadPath(ReadPath.valueOf(value.toUpperCase()));
+                case "latencyMs" -> latencyMillis = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + option[0]);
+            }
+        }
+
+        // Репозиторий на keySpace книг с задержкой latencyMs на запрос
+        BookRepository bookRepository = new BookRepository(
+                LatencyModel.fixed(Duration.ofMillis(latencyMillis)), Integer.MAX_VALUE);
+        List<Book> books = new ArrayList<>(loadSettings.getKeySpace());
+        for (long id = 1; id <= loadSettings.getKeySpace(); id++) {
+            books.add(new Book(id, "Книга " + id, "Автор " + (id % 1000), BigDecimal.valueOf(id % 10_000, 2)));
+        }
+        bookRepository.saveAll(books);
+
+        BookCacheSettings cacheSettings = new BookCacheSettings();
+        if (loadSettings.getReadPath() == ReadPath.FRONT_TIER) {
+            cacheSettings.setFrontTierCapacity(100);
+        }
+        try (BookService bookService = new BookService(bookRepository, cacheSettings)) {
+            System.out.println("Нагрузка: " + loadSettings.getThreads() + " потоков, " + loadSettings.getDistribution()
+                    + ", " + loadSettings.getKeySpace() + " книг, кэш " + loadSettings.getReadPath());
+            LoadReport report = new LoadGenerator(bookService, loadSettings).run();
+            System.out.println(report);
+        }
+    }
+}
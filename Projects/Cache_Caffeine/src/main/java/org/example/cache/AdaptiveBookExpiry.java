@@ -0,0 +1,90 @@
+package org.example.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.example.model.CachedBook;
+
+import java.time.Duration;
+
+/*
+Время жизни записи кэша, подстроенное под то, как часто меняется книга.
+Для каждой книги хранится время последнего изменения и сглаженный (EWMA) интервал между изменениями.
+TTL = интервал * TTL_FRACTION, в пределах [minTtl, maxTtl]:
+  - книга, которая не менялась (или про изменения которой ничего не известно), живет maxTtl
+  - часто меняющаяся цена живет около половины своего интервала изменений, но не меньше minTtl
+Если книга давно не менялась, интервал считается не меньше времени с последнего изменения,
+поэтому бывшая "горячая" книга постепенно возвращается к длинному TTL.
+История изменений хранится в ограниченном Caffeine-кэше: редкие книги из нее вытесняются и снова получают maxTtl.
+Время - в наносекундах тикера Caffeine (по умолчанию System.nanoTime()).
+*/
+public class AdaptiveBookExpiry implements Expiry<Long, CachedBook> {
+
+    // Какую часть интервала между изменениями запись живет в кэше
+    private static final double TTL_FRACTION = 0.5;
+
+    // Вес нового интервала в скользящем среднем
+    private static final double EWMA_ALPHA = 0.3;
+
+    private final long minTtlNanos;
+    private final long maxTtlNanos;
+
+    // id книги -> история ее изменений
+    private final Cache<Long, ChangeHistory> history;
+
+    private record ChangeHistory(long lastChangeNanos, long intervalNanos) {
+    }
+
+    public AdaptiveBookExpiry(Duration minTtl, Duration maxTtl, int trackedBooks) {
+        if (minTtl.isNegative() || minTtl.compareTo(maxTtl) > 0) {
+            throw new IllegalArgumentException("Expected 0 <= minTtl <= maxTtl, got " + minTtl + " and " + maxTtl);
+        }
+        this.minTtlNanos = minTtl.toNanos();
+        this.maxTtlNanos = maxTtl.toNanos();
+        this.history = Caffeine.newBuilder()
+                .maximumSize(trackedBooks)
+                .build();
+    }
+
+    // Отмечает изменение книги в момент nowNanos
+    public void recordChange(long id, long nowNanos) {
+        history.asMap().compute(id, (key, previous) -> {
+            if (previous == null) {
+                // Первое изменение: интервал еще неизвестен
+                return new ChangeHistory(nowNanos, 0);
+            }
+            long interval = Math.max(0, nowNanos - previous.lastChangeNanos());
+            long smoothed = previous.intervalNanos() == 0
+                    ? interval
+                    : (long) (EWMA_ALPHA * interval + (1 - EWMA_ALPHA) * previous.intervalNanos());
+            return new ChangeHistory(nowNanos, smoothed);
+        });
+    }
+
+    // Время жизни записи книги, если она попадет в кэш в момент nowNanos
+    public long ttlNanos(long id, long nowNanos) {
+        ChangeHistory changes = history.getIfPresent(id);
+        if (changes == null || changes.intervalNanos() == 0) {
+            return maxTtlNanos;
+        }
+        long interval = Math.max(changes.intervalNanos(), nowNanos - changes.lastChangeNanos());
+        long ttl = (long) (interval * TTL_FRACTION);
+        return Math.max(minTtlNanos, Math.min(maxTtlNanos, ttl));
+    }
+
+    @Override
+    public long expireAfterCreate(Long id, CachedBook book, long currentTime) {
+        return ttlNanos(id, currentTime);
+    }
+
+    @Override
+    public long expireAfterUpdate(Long id, CachedBook book, long currentTime, long currentDuration) {
+        return ttlNanos(id, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(Long id, CachedBook book, long currentTime, long currentDuration) {
+        // Чтение не продлевает и не сокращает жизнь записи
+        return currentDuration;
+    }
+}
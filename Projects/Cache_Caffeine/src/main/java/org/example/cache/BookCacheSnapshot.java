@@ -0,0 +1,217 @@
+package org.example.cache;
+
+import org.example.model.Book;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+Снимок содержимого кэша для "теплого" старта после перезапуска.
+Файл пишется и читается через FileChannel одним буфером в куче. Memory-mapped буфер здесь не подходит:
+отображение нельзя освободить явно, а пока оно живо, Windows не дает переименовать или перезаписать файл.
+
+Формат (big-endian):
+  int magic, short version, int count
+  count записей: long id, строка title, строка author, цена
+    строка - int длина в байтах UTF-8 (-1 для null) + байты
+    цена - int scale + short длина unscaled-значения (-1 для null) + байты BigInteger
+Записи идут от самой "холодной" к самой "горячей": при загрузке горячие кладутся в кэш последними.
+Любое нарушение формата (обрезанный файл, мусор, невозможные длины) при чтении - IllegalStateException:
+количество записей и каждая длина сверяются с остатком файла до выделения памяти.
+*/
+public final class BookCacheSnapshot {
+
+    private static final int MAGIC = 0x424B534E; // "BKSN"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = Integer.BYTES + Short.BYTES + Integer.BYTES;
+
+    // Минимальный размер записи: id, две null-строки и null-цена
+    private static final int MIN_ENTRY_SIZE = Long.BYTES + Integer.BYTES + Integer.BYTES + Integer.BYTES + Short.BYTES;
+
+    private BookCacheSnapshot() {
+    }
+
+    // Записывает книги в порядке от холодной к горячей. Файл сначала пишется во временный и потом
+    // переименовывается, чтобы падение посреди записи не оставило битый снимок
+    public static void write(Path path, List<Book> coldestToHottest) {
+        List<EncodedBook> encoded = new ArrayList<>(coldestToHottest.size());
+        long size = HEADER_SIZE;
+        for (Book book : coldestToHottest) {
+            EncodedBook entry = new EncodedBook(book);
+            encoded.add(entry);
+            size += entry.size();
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Снимок кэша слишком большой: " + size + " байт");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putShort(VERSION).putInt(encoded.size());
+        for (EncodedBook entry : encoded) {
+            entry.writeTo(buffer);
+        }
+        buffer.flip();
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать снимок кэша " + path, e);
+        }
+
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать снимок кэша " + path, e);
+        }
+    }
+
+    // Читает книги в том порядке, в котором они были записаны (от холодной к горячей)
+    public static List<Book> read(Path path) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Файл " + path + " слишком большой для снимка кэша");
+            }
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать снимок кэша " + path, e);
+        }
+
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IllegalStateException("Файл " + path + " не является снимком кэша");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IllegalStateException("Неподдерживаемая версия снимка кэша: " + version);
+        }
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / MIN_ENTRY_SIZE) {
+            throw new IllegalStateException("Снимок кэша " + path + " поврежден: записей " + count);
+        }
+        try {
+            List<Book> books = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long id = buffer.getLong();
+                String title = readString(buffer);
+                String author = readString(buffer);
+                BigDecimal price = readPrice(buffer);
+                books.add(new Book(id, title, author, price));
+            }
+            return books;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // Обрезанный файл или испорченные байты цены
+            throw new IllegalStateException("Снимок кэша " + path + " поврежден", e);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[checkLength(buffer, length)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static BigDecimal readPrice(ByteBuffer buffer) {
+        int scale = buffer.getInt();
+        short length = buffer.getShort();
+        if (length == -1) {
+            return null;
+        }
+        // У BigInteger.toByteArray() всегда хотя бы один байт
+        if (length == 0) {
+            throw new IllegalStateException("Пустая цена в снимке кэша");
+        }
+        byte[] unscaled = new byte[checkLength(buffer, length)];
+        buffer.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    // Длина из файла должна помещаться в остаток буфера, иначе это мусор, а не запись
+    private static int checkLength(ByteBuffer buffer, int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalStateException("Снимок кэша поврежден: длина " + length
+                    + ", осталось " + buffer.remaining() + " байт");
+        }
+        return length;
+    }
+
+    // Книга, заранее переведенная в байты: так размер буфера известен заранее
+    private static final class EncodedBook {
+
+        private final long id;
+        private final byte[] title;
+        private final byte[] author;
+        private final int priceScale;
+        private final byte[] priceUnscaled;
+
+        EncodedBook(Book book) {
+            this.id = book.getId();
+            this.title = encode(book.getTitle());
+            this.author = encode(book.getAuthor());
+            this.priceScale = book.getPrice() == null ? 0 : book.getPrice().scale();
+            this.priceUnscaled = book.getPrice() == null ? null : book.getPrice().unscaledValue().toByteArray();
+        }
+
+        long size() {
+            return Long.BYTES
+                    + Integer.BYTES + length(title)
+                    + Integer.BYTES + length(author)
+                    + Integer.BYTES + Short.BYTES + length(priceUnscaled);
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            buffer.putLong(id);
+            writeBytes(buffer, title);
+            writeBytes(buffer, author);
+            buffer.putInt(priceScale);
+            if (priceUnscaled == null) {
+                buffer.putShort((short) -1);
+            } else {
+                buffer.putShort((short) priceUnscaled.length).put(priceUnscaled);
+            }
+        }
+
+        private static byte[] encode(String value) {
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static int length(byte[] bytes) {
+            return bytes == null ? 0 : bytes.length;
+        }
+
+        private static void writeBytes(ByteBuffer buffer, byte[] bytes) {
+            if (bytes == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(bytes.length).put(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.cache;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.example.model.CachedBook;
+
+/*
+Оценка размера записи кэша в байтах (retained heap: ключ + CachedBook + название + расход самого Caffeine).
+Автор не учитывается: строка интернирована и общая для всех книг автора.
+Цена хранится примитивами внутри CachedBook и отдельного места не занимает.
+Считаем для 64-битной JVM со сжатыми указателями (по умолчанию при куче до 32 ГБ):
+  заголовок объекта 12 байт, ссылка 4 байта, выравнивание объектов по 8 байт.
+Накладные расходы Caffeine на запись (узел с весом и ссылками очереди, узел и слот ConcurrentHashMap,
+счетчики частоты) одинаковы для всех записей, но при бюджете в байтах их нужно считать:
+иначе реальный расход - бюджет плюс по ENTRY_OVERHEAD на каждую запись, а число записей бюджетом не ограничено.
+ENTRY_OVERHEAD - замер FootprintReport (около 110 байт на запись у Caffeine) без упакованного ключа Long,
+который считается отдельно.
+*/
+public class BookWeigher implements Weigher<Long, CachedBook> {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+
+    // Расход структуры Caffeine на одну запись без ключа (см. FootprintReport)
+    static final int ENTRY_OVERHEAD = 88;
+
+    // Long: заголовок + long value
+    private static final int LONG_SIZE = align(OBJECT_HEADER + Long.BYTES);
+    // CachedBook: заголовок + long id + long priceUnits + int priceScale + 2 ссылки (title, author)
+    private static final int BOOK_SIZE = align(OBJECT_HEADER + 2 * Long.BYTES + Integer.BYTES + 2 * REFERENCE);
+    // String: заголовок + ссылка на byte[] + int hash + byte coder + boolean hashIsZero
+    private static final int STRING_SIZE = align(OBJECT_HEADER + REFERENCE + Integer.BYTES + 2);
+
+    @Override
+    public int weigh(Long id, CachedBook book) {
+        long size = ENTRY_OVERHEAD + LONG_SIZE + BOOK_SIZE + stringSize(book.title());
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    static long stringSize(String value) {
+        if (value == null) {
+            return 0;
+        }
+        // Compact strings: латиница хранится по байту на символ, кириллица и прочее - по два (UTF-16)
+        int bytesPerChar = isLatin1(value) ? 1 : 2;
+        return STRING_SIZE + align(ARRAY_HEADER + (long) value.length() * bytesPerChar);
+    }
+
+    private static boolean isLatin1(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.cache;
+
+import org.example.model.Book;
+import org.example.repository.BookRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Общий загрузчик для всех кэшей BookService (single-flight).
+Caffeine объединяет одновременные промахи только внутри одного кэша. Если один и тот же id
+одновременно запрашивают через разные кэши, без этого слоя в репозиторий ушло бы несколько запросов.
+Здесь на каждый id в полете есть одна загрузка (CompletableFuture), остальные вызывающие ждут ее результат.
+Если включена проверка существования, id, которых точно нет по фильтру Блума репозитория,
+отсекаются сразу: промах по несуществующей книге не платит задержку запроса к базе.
+*/
+public class CoalescingBookLoader {
+
+    private final BookRepository bookRepository;
+
+    // Проверять ли фильтр Блума репозитория перед загрузкой
+    private final boolean existenceCheck;
+
+    // Загрузки, которые выполняются прямо сейчас
+    private final Map<Long, CompletableFuture<Book>> inFlight = new ConcurrentHashMap<>();
+
+    // Сколько id реально загружено из репозитория
+    private final LongAdder loadCount = new LongAdder();
+
+    // Сколько запросов присоединилось к уже идущей загрузке вместо своего похода в репозиторий
+    private final LongAdder deduplicatedCount = new LongAdder();
+
+    // Сколько id отсечено фильтром Блума без запроса к репозиторию
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public CoalescingBookLoader(BookRepository bookRepository) {
+        this(bookRepository, false);
+    }
+
+    public CoalescingBookLoader(BookRepository bookRepository, boolean existenceCheck) {
+        this.bookRepository = bookRepository;
+        this.existenceCheck = existenceCheck;
+    }
+
+    public Book load(Long id) {
+        if (isKnownMissing(id)) {
+            return null;
+        }
+        CompletableFuture<Book> created = new CompletableFuture<>();
+        CompletableFuture<Book> existing = inFlight.putIfAbsent(id, created);
+        if (existing != null) {
+            deduplicatedCount.increment();
+            return join(existing);
+        }
+        try {
+            loadCount.increment();
+            Book book = bookRepository.findByid(id);
+            created.complete(book);
+            return book;
+        } catch (Throwable e) {
+            // Любая ошибка, включая Error, завершает future: иначе ждущие потоки зависли бы в join навсегда
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, created);
+        }
+    }
+
+    // Пакетная загрузка: id, которые уже грузятся, ждем, остальные загружаем одним findAllById
+    public Map<Long, Book> loadAll(Collection<? extends Long> ids) {
+        Map<Long, CompletableFuture<Book>> owned = new HashMap<>();
+        Map<Long, CompletableFuture<Book>> joined = new HashMap<>();
+        for (Long id : ids) {
+            if (owned.containsKey(id) || joined.containsKey(id) || isKnownMissing(id)) {
+                continue;
+            }
+            CompletableFuture<Book> created = new CompletableFuture<>();
+            CompletableFuture<Book> existing = inFlight.putIfAbsent(id, created);
+            if (existing == null) {
+                owned.put(id, created);
+            } else {
+                deduplicatedCount.increment();
+                joined.put(id, existing);
+            }
+        }
+
+        Map<Long, Book> result = new HashMap<>();
+        try {
+            if (!owned.isEmpty()) {
+                loadCount.add(owned.size());
+                Map<Long, Book> found = bookRepository.findAllById(owned.keySet());
+                owned.forEach((id, future) -> future.complete(found.get(id)));
+                result.putAll(found);
+            }
+        } catch (Throwable e) {
+            owned.values().forEach(future -> future.completeExceptionally(e));
+            throw e;
+        } finally {
+            owned.forEach(inFlight::remove);
+        }
+
+        joined.forEach((id, future) -> {
+            Book book = join(future);
+            if (book != null) {
+                result.put(id, book);
+            }
+        });
+        return result;
+    }
+
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    public long getDeduplicatedCount() {
+        return deduplicatedCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    private boolean isKnownMissing(Long id) {
+        if (existenceCheck && !bookRepository.mightContain(id)) {
+            rejectedCount.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private static Book join(CompletableFuture<Book> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Отдаем исходное исключение загрузки, а не обертку CompletableFuture
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.cache;
+
+import org.example.model.CachedBook;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/*
+Небольшой кэш перед Caffeine для самых горячих id.
+Ключи - примитивные long, хранятся в плоском массиве (открытая адресация, линейное пробирование),
+поэтому на попадании нет ни упаковки id в Long, ни узла Caffeine на каждую запись.
+Значения - неизменяемые CachedBook, как и в кэшах Caffeine сервиса.
+
+Потокобезопасность без блокировок:
+  Книга публикуется через setRelease/getAcquire, поэтому читатель видит ее полностью сконструированной
+  Ключ и значение пишутся не атомарно, поэтому при чтении значение дополнительно сверяется по book.id():
+  при гонке двух записей в один слот читатель получит промах, но никогда чужую книгу
+Вытеснение: если все слоты окна пробирования заняты, запись перезаписывает "домашний" слот,
+кто бы в нем ни лежал - частоту обращений кэш не учитывает. Книга пишется сюда только при промахе,
+поэтому вытесненный горячий id вернется при следующем обращении ценой одного чтения из Caffeine.
+Актуальность поддерживает BookService: копия сбрасывается при любом удалении записи из автозагружающего кэша.
+*/
+public class LongBookCache {
+
+    // Сколько слотов подряд просматриваем при поиске/вставке
+    private static final int PROBE_LIMIT = 8;
+
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(CachedBook[].class);
+
+    private final long[] keys;
+    private final CachedBook[] values;
+    private final int mask;
+
+    public LongBookCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        // Округляем до степени двойки, чтобы индекс считать маской вместо деления
+        int size = Integer.highestOneBit(Math.max(capacity, PROBE_LIMIT) - 1) << 1;
+        this.keys = new long[size];
+        this.values = new CachedBook[size];
+        this.mask = size - 1;
+    }
+
+    public CachedBook get(long id) {
+        int home = indexOf(id);
+        for (int i = 0; i < PROBE_LIMIT; i++) {
+            int index = (home + i) & mask;
+            if (keys[index] == id) {
+                CachedBook book = (CachedBook) VALUES.getAcquire(values, index);
+                if (book != null && book.id() == id) {
+                    return book;
+                }
+            }
+        }
+        return null;
+    }
+
+    public void put(long id, CachedBook book) {
+        int home = indexOf(id);
+        int target = -1;
+        for (int i = 0; i < PROBE_LIMIT; i++) {
+            int index = (home + i) & mask;
+            if (keys[index] == id) {
+                target = index;
+                break;
+            }
+            if (target < 0 && VALUES.getAcquire(values, index) == null) {
+                target = index;
+            }
+        }
+        if (target < 0) {
+            target = home;
+        }
+        keys[target] = id;
+        VALUES.setRelease(values, target, book);
+    }
+
+    public void invalidate(long id) {
+        int home = indexOf(id);
+        for (int i = 0; i < PROBE_LIMIT; i++) {
+            int index = (home + i) & mask;
+            if (keys[index] == id) {
+                VALUES.setRelease(values, index, null);
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < values.length; i++) {
+            VALUES.setRelease(values, i, null);
+        }
+    }
+
+    // Количество слотов в таблице (емкость после округления)
+    public int capacity() {
+        return values.length;
+    }
+
+    // Количество занятых слотов. Проходит по всей таблице, только для отчетов и тестов
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (VALUES.getAcquire(values, i) != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private int indexOf(long id) {
+        // Перемешиваем биты (как в SplitMix64), иначе последовательные id ложатся в соседние слоты
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.cache;
+
+import org.example.model.Book;
+import org.example.repository.BookRepository;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+Буфер отложенной записи (write-behind) для BookService.
+Изменения одной книги склеиваются: в буфере хранится только последняя версия по каждому id,
+поэтому серия из тысяч обновлений цены нескольких книг превращается в несколько записей в базу.
+Сброс в репозиторий одним saveAll выполняется:
+  - по таймеру (flushInterval) на отдельном потоке
+  - сразу, когда в буфере набралось batchSize разных id
+  - в close() и в shutdown hook JVM, чтобы изменения не потерялись при остановке
+Книга остается в буфере, пока не записана, поэтому загрузка при промахе кэша должна сначала
+смотреть в буфер (getPending), иначе из репозитория прочиталась бы старая версия.
+enqueue и close разделяют одну блокировку: enqueue берет ее на чтение (параллельные обновления
+друг другу не мешают), close - на запись. Поэтому после того как close выставил closed,
+ни одно обновление уже не попадет в буфер мимо финального сброса.
+*/
+public class WriteBehindBuffer implements AutoCloseable {
+
+    private final BookRepository bookRepository;
+
+    private final int batchSize;
+
+    // Последняя еще не записанная версия каждой книги
+    private final Map<Long, Book> pending = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Thread shutdownHook;
+
+    // Сколько книг записано в репозиторий и сколько обновлений склеено с более поздними
+    private final LongAdder flushedCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    private volatile boolean closed;
+
+    public WriteBehindBuffer(BookRepository bookRepository, Duration flushInterval, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.bookRepository = bookRepository;
+        this.batchSize = batchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "book-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = flushInterval.toNanos();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        this.shutdownHook = new Thread(this::flush, "book-write-behind-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    public void enqueue(Book book) {
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Write-behind buffer is closed");
+            }
+            if (pending.put(book.getId(), book) != null) {
+                coalescedCount.increment();
+            } else if (pending.size() >= batchSize) {
+                scheduler.execute(this::flushQuietly);
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    // Не записанная еще версия книги или null
+    public Book getPending(Long id) {
+        return pending.get(id);
+    }
+
+    // Записывает все накопленные изменения одним запросом.
+    // Книга удаляется из буфера, только если за время записи ее не обновили еще раз
+    public synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Book> batch = new HashMap<>(pending);
+        bookRepository.saveAll(batch.values());
+        batch.forEach(pending::remove);
+        flushedCount.add(batch.size());
+        return batch.size();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Изменения остаются в буфере и уйдут при следующем сбросе
+            System.err.println("Отложенная запись книг не выполнена: " + e.getMessage());
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getFlushedCount() {
+        return flushedCount.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    // Останавливает таймер и синхронно записывает все, что осталось в буфере
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM уже останавливается: хук выполнится сам, запись ниже безопасна (flush синхронизирован)
+        }
+        flush();
+    }
+}
@@ -0,0 +1,243 @@
+package org.example.config;
+
+import org.example.stats.StatsSink;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+// Настройки кэшей BookService. Значения по умолчанию повторяют исходное поведение сервиса,
+// кроме existenceCheck: проверка по фильтру Блума включена сразу, она не меняет результатов
+// (ложноотрицательных ответов нет), а только убирает запросы к базе за несуществующими id
+public class BookCacheSettings {
+
+    // Асинхронный режим автозагружающего кэша с фоновым обновлением (refresh-ahead)
+    private boolean asyncRefresh = false;
+
+    // Через сколько после записи запись считается "старой" и обновляется в фоне
+    private Duration refreshAfterWrite = Duration.ofMinutes(1);
+
+    // Пул, на котором выполняются асинхронные загрузки и фоновые обновления
+    private Executor executor = ForkJoinPool.commonPool();
+
+    // Емкость примитивного кэша перед Caffeine для горячих id (LongBookCache), 0 - не используется
+    private int frontTierCapacity = 0;
+
+    // Файл снимка автозагружающего кэша: читается при создании сервиса и пишется в close(), null - не используется
+    private Path snapshotPath;
+
+    // Бюджет памяти на каждый кэш в байтах (вытеснение по оценке BookWeigher), 0 - ограничение maximumSize(100)
+    private long maximumWeightBytes = 0;
+
+    // Файл для записи трассы обращений (AccessTraceRecorder), null - трасса не пишется
+    private Path tracePath;
+
+    // Проверять фильтр Блума репозитория перед загрузкой: промах по несуществующему id не идет в базу
+    private boolean existenceCheck = true;
+
+    // Размер фильтра Блума репозитория: ожидаемое число книг и допустимая доля ложных срабатываний.
+    // Чем больше книг и меньше доля, тем больше памяти (около 1,2 байта на книгу при 1%)
+    private long existenceExpectedBooks = 100_000;
+    private double existenceFalsePositiveRate = 0.01;
+
+    // Режим записи через BookService.updateBook
+    private WriteMode writeMode = WriteMode.WRITE_THROUGH;
+
+    // Как часто буфер отложенной записи сбрасывается в репозиторий (режим WRITE_BEHIND)
+    private Duration writeBehindInterval = Duration.ofSeconds(1);
+
+    // При скольких разных id в буфере сброс выполняется, не дожидаясь таймера (режим WRITE_BEHIND)
+    private int writeBehindBatchSize = 500;
+
+    // Сколько разных поисковых запросов хранит кэш результатов поиска
+    private int searchCacheSize = 1000;
+
+    // Получатель периодических снимков статистики кэшей, null - не используется
+    private StatsSink statsSink;
+
+    // Как часто статистика передается в statsSink
+    private Duration statsInterval = Duration.ofMinutes(1);
+
+    // Имя сервиса в JMX (org.example:type=BookCache,service=<имя>,...), null - статистика в JMX не публикуется
+    private String jmxName;
+
+    // Адаптивное время жизни в кэше с истечением (AdaptiveBookExpiry) вместо фиксированных 5 минут
+    private boolean adaptiveExpiry = false;
+
+    // Границы адаптивного времени жизни
+    private Duration minExpiry = Duration.ofSeconds(10);
+    private Duration maxExpiry = Duration.ofHours(1);
+
+    // Для скольких книг хранится история изменений
+    private int expiryTrackedBooks = 10_000;
+
+    // Геттеры и сеттеры
+    public boolean isAsyncRefresh() {
+        return asyncRefresh;
+    }
+
+    public void setAsyncRefresh(boolean asyncRefresh) {
+        this.asyncRefresh = asyncRefresh;
+    }
+
+    public Duration getRefreshAfterWrite() {
+        return refreshAfterWrite;
+    }
+
+    public void setRefreshAfterWrite(Duration refreshAfterWrite) {
+        this.refreshAfterWrite = refreshAfterWrite;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public int getFrontTierCapacity() {
+        return frontTierCapacity;
+    }
+
+    public void setFrontTierCapacity(int frontTierCapacity) {
+        this.frontTierCapacity = frontTierCapacity;
+    }
+
+    public Path getSnapshotPath() {
+        return snapshotPath;
+    }
+
+    public void setSnapshotPath(Path snapshotPath) {
+        this.snapshotPath = snapshotPath;
+    }
+
+    public long getMaximumWeightBytes() {
+        return maximumWeightBytes;
+    }
+
+    public void setMaximumWeightBytes(long maximumWeightBytes) {
+        this.maximumWeightBytes = maximumWeightBytes;
+    }
+
+    public Path getTracePath() {
+        return tracePath;
+    }
+
+    public void setTracePath(Path tracePath) {
+        this.tracePath = tracePath;
+    }
+
+    public boolean isExistenceCheck() {
+        return existenceCheck;
+    }
+
+    public void setExistenceCheck(boolean existenceCheck) {
+        this.existenceCheck = existenceCheck;
+    }
+
+    public long getExistenceExpectedBooks() {
+        return existenceExpectedBooks;
+    }
+
+    public void setExistenceExpectedBooks(long existenceExpectedBooks) {
+        this.existenceExpectedBooks = existenceExpectedBooks;
+    }
+
+    public double getExistenceFalsePositiveRate() {
+        return existenceFalsePositiveRate;
+    }
+
+    public void setExistenceFalsePositiveRate(double existenceFalsePositiveRate) {
+        this.existenceFalsePositiveRate = existenceFalsePositiveRate;
+    }
+
+    public WriteMode getWriteMode() {
+        return writeMode;
+    }
+
+    public void setWriteMode(WriteMode writeMode) {
+        this.writeMode = writeMode;
+    }
+
+    public Duration getWriteBehindInterval() {
+        return writeBehindInterval;
+    }
+
+    public void setWriteBehindInterval(Duration writeBehindInterval) {
+        this.writeBehindInterval = writeBehindInterval;
+    }
+
+    public int getWriteBehindBatchSize() {
+        return writeBehindBatchSize;
+    }
+
+    public void setWriteBehindBatchSize(int writeBehindBatchSize) {
+        this.writeBehindBatchSize = writeBehindBatchSize;
+    }
+
+    public int getSearchCacheSize() {
+        return searchCacheSize;
+    }
+
+    public void setSearchCacheSize(int searchCacheSize) {
+        this.searchCacheSize = searchCacheSize;
+    }
+
+    public StatsSink getStatsSink() {
+        return statsSink;
+    }
+
+    public void setStatsSink(StatsSink statsSink) {
+        this.statsSink = statsSink;
+    }
+
+    public Duration getStatsInterval() {
+        return statsInterval;
+    }
+
+    public void setStatsInterval(Duration statsInterval) {
+        this.statsInterval = statsInterval;
+    }
+
+    public String getJmxName() {
+        return jmxName;
+    }
+
+    public void setJmxName(String jmxName) {
+        this.jmxName = jmxName;
+    }
+
+    public boolean isAdaptiveExpiry() {
+        return adaptiveExpiry;
+    }
+
+    public void setAdaptiveExpiry(boolean adaptiveExpiry) {
+        this.adaptiveExpiry = adaptiveExpiry;
+    }
+
+    public Duration getMinExpiry() {
+        return minExpiry;
+    }
+
+    public void setMinExpiry(Duration minExpiry) {
+        this.minExpiry = minExpiry;
+    }
+
+    public Duration getMaxExpiry() {
+        return maxExpiry;
+    }
+
+    public void setMaxExpiry(Duration maxExpiry) {
+        this.maxExpiry = maxExpiry;
+    }
+
+    public int getExpiryTrackedBooks() {
+        return expiryTrackedBooks;
+    }
+
+    public void setExpiryTrackedBooks(int expiryTrackedBooks) {
+        this.expiryTrackedBooks = expiryTrackedBooks;
+    }
+}
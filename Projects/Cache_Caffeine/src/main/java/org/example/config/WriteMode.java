@@ -0,0 +1,11 @@
+package org.example.config;
+
+// Режим записи изменений книг через BookService.updateBook
+public enum WriteMode {
+
+    // Запись сразу в репозиторий, затем в кэши: вызывающий ждет запрос к базе
+    WRITE_THROUGH,
+
+    // Запись в кэши и в буфер: изменения одного id склеиваются и уходят в репозиторий пачками
+    WRITE_BEHIND
+}
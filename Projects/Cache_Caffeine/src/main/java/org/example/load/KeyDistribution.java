@@ -0,0 +1,78 @@
+package org.example.load;
+
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+
+// Распределения ключей для нагрузки: id книг выдаются в диапазоне [1, keySpace]
+public enum KeyDistribution {
+
+    // Все id равновероятны
+    UNIFORM {
+        @Override
+        public LongSupplier newGenerator(int keySpace, long seed) {
+            SplittableRandom random = new SplittableRandom(seed);
+            return () -> 1 + random.nextInt(keySpace);
+        }
+    },
+
+    // Небольшое число "горячих" id получает большую часть запросов (как в реальном каталоге)
+    ZIPFIAN {
+        @Override
+        public LongSupplier newGenerator(int keySpace, long seed) {
+            return new ZipfianGenerator(keySpace, seed);
+        }
+    },
+
+    // Последовательный проход по всем id по кругу - худший случай для LRU-подобных политик
+    SCAN {
+        @Override
+        public LongSupplier newGenerator(int keySpace, long seed) {
+            long[] next = {seed % keySpace};
+            return () -> 1 + (next[0]++ % keySpace);
+        }
+    };
+
+    public abstract LongSupplier newGenerator(int keySpace, long seed);
+
+    // Генератор Zipf-распределения (алгоритм Gray et al., как в YCSB), theta = 0.99
+    private static final class ZipfianGenerator implements LongSupplier {
+
+        private static final double THETA = 0.99;
+
+        private final SplittableRandom random;
+        private final int keySpace;
+        private final double zetaN;
+        private final double alpha;
+        private final double eta;
+
+        ZipfianGenerator(int keySpace, long seed) {
+            this.random = new SplittableRandom(seed);
+            this.keySpace = keySpace;
+            this.zetaN = zeta(keySpace);
+            this.alpha = 1.0 / (1.0 - THETA);
+            this.eta = (1 - Math.pow(2.0 / keySpace, 1 - THETA)) / (1 - zeta(2) / zetaN);
+        }
+
+        @Override
+        public long getAsLong() {
+            double u = random.nextDouble();
+            double uz = u * zetaN;
+            if (uz < 1.0) {
+                return 1;
+            }
+            if (uz < 1.0 + Math.pow(0.5, THETA)) {
+                return 2;
+            }
+            long rank = (long) (keySpace * Math.pow(eta * u - eta + 1, alpha));
+            return 1 + Math.min(rank, keySpace - 1);
+        }
+
+        private static double zeta(int n) {
+            double sum = 0;
+            for (int i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, THETA);
+            }
+            return sum;
+        }
+    }
+}
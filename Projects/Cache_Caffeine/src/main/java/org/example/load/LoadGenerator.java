@@ -0,0 +1,127 @@
+package org.example.load;
+
+import org.example.service.BookService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/*
+Генератор нагрузки на BookService: сквозной (macro) бенчмарк в дополнение к JMH-микробенчмаркам.
+Каждый поток берет id из своего генератора KeyDistribution и с вероятностью invalidateRatio
+сбрасывает книгу из кэшей, иначе читает ее через выбранный ReadPath, замеряя задержку.
+Задержки пишутся в гистограмму своего потока и сводятся в конце, чтобы потоки не делили счетчики.
+Доля попаданий считается по счетчикам загрузчика сервиса: все, что не потребовало загрузки, - попадание.
+
+Потоки обычные (фиксированный пул): проект собирается под Java 17, виртуальных потоков в ней нет.
+Запросы к репозиторию в основном ждут (sleep), поэтому сотни платформенных потоков справляются.
+*/
+public class LoadGenerator {
+
+    private final BookService bookService;
+    private final LoadSettings settings;
+
+    public LoadGenerator(BookService bookService, LoadSettings settings) {
+        this.bookService = bookService;
+        this.settings = settings;
+    }
+
+    public LoadReport run() throws InterruptedException {
+        int threads = settings.getThreads();
+        long requestCount = settings.getRequestCount();
+        AtomicLong remaining = new AtomicLong(requestCount > 0 ? requestCount : Long.MAX_VALUE);
+        long durationNanos = requestCount > 0 ? Long.MAX_VALUE : settings.getDuration().toNanos();
+
+        List<Worker> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(new Worker(settings.getSeed() + i, remaining));
+        }
+
+        long missesBefore = misses();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(threads);
+        long startNanos;
+        try {
+            for (Worker worker : workers) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    worker.run(durationNanos);
+                    return null;
+                }));
+            }
+            startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Load worker failed", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startNanos);
+
+        LatencyHistogram latency = new LatencyHistogram();
+        long reads = 0;
+        long invalidations = 0;
+        for (Worker worker : workers) {
+            latency.add(worker.latency);
+            reads += worker.reads;
+            invalidations += worker.invalidations;
+        }
+        return new LoadReport(reads, invalidations, misses() - missesBefore, elapsed, latency);
+    }
+
+    // Промах - любое чтение, дошедшее до загрузчика (загрузка, ожидание чужой загрузки или отсечение фильтром)
+    private long misses() {
+        return bookService.getLoadCount() + bookService.getDeduplicatedLoadCount() + bookService.getRejectedLoadCount();
+    }
+
+    private final class Worker {
+
+        private final LongSupplier keys;
+        private final SplittableRandom random;
+        private final AtomicLong remaining;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private long reads;
+        private long invalidations;
+
+        Worker(long seed, AtomicLong remaining) {
+            this.keys = settings.getDistribution().newGenerator(settings.getKeySpace(), seed);
+            this.random = new SplittableRandom(seed);
+            this.remaining = remaining;
+        }
+
+        void run(long durationNanos) {
+            ReadPath readPath = settings.getReadPath();
+            double invalidateRatio = settings.getInvalidateRatio();
+            long startNanos = System.nanoTime();
+            // Разность, а не сравнение с дедлайном: при durationNanos = Long.MAX_VALUE сумма переполнилась бы
+            while (remaining.getAndDecrement() > 0 && System.nanoTime() - startNanos < durationNanos) {
+                long id = keys.getAsLong();
+                if (invalidateRatio > 0 && random.nextDouble() < invalidateRatio) {
+                    bookService.invalidateCache(id);
+                    invalidations++;
+                } else {
+                    long readStart = System.nanoTime();
+                    readPath.read(bookService, id);
+                    latency.record(System.nanoTime() - readStart);
+                    reads++;
+                }
+            }
+        }
+    }
+}
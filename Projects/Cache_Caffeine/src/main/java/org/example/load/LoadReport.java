@@ -0,0 +1,44 @@
+package org.example.load;
+
+import java.time.Duration;
+
+// Итоги прогона генератора нагрузки. Задержки - только для операций чтения
+public record LoadReport(long reads, long invalidations, long misses, Duration elapsed, LatencyHistogram readLatency) {
+
+    // Операций (чтений и инвалидаций) в секунду
+    public double throughput() {
+        double seconds = elapsed.toNanos() / 1e9;
+        return seconds == 0 ? 0 : (reads + invalidations) / seconds;
+    }
+
+    // Доля чтений, обслуженных кэшем без загрузки из репозитория
+    public double hitRatio() {
+        return reads == 0 ? 0 : Math.max(0, 1.0 - (double) misses / reads);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "Операций: %d (чтений %d, инвалидаций %d) за %.2f с%n"
+                        + "Пропускная способность: %.0f оп/с%n"
+                        + "Доля попаданий: %.2f%%%n"
+                        + "Задержка чтения: p50 %s, p99 %s, p99.9 %s, max %s",
+                reads + invalidations, reads, invalidations, elapsed.toNanos() / 1e9,
+                throughput(),
+                hitRatio() * 100,
+                formatNanos(readLatency.getValueAtPercentile(50)),
+                formatNanos(readLatency.getValueAtPercentile(99)),
+                formatNanos(readLatency.getValueAtPercentile(99.9)),
+                formatNanos(readLatency.getMaxNanos()));
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000) {
+            return String.format("%.2f мс", nanos / 1e6);
+        }
+        if (nanos >= 1_000) {
+            return String.format("%.1f мкс", nanos / 1e3);
+        }
+        return nanos + " нс";
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.load;
+
+import java.time.Duration;
+
+// Настройки генератора нагрузки. Остановка - по числу запросов, если requestCount > 0, иначе по времени
+public class LoadSettings {
+
+    // Сколько потоков одновременно обращаются к сервису
+    private int threads = 64;
+
+    // Длительность прогона (если не задано число запросов)
+    private Duration duration = Duration.ofSeconds(10);
+
+    // Общее число операций на все потоки, 0 - ограничение по времени
+    private long requestCount = 0;
+
+    // Распределение id и количество разных книг
+    private KeyDistribution distribution = KeyDistribution.ZIPFIAN;
+    private int keySpace = 10_000;
+
+    // Доля операций invalidateCache среди всех операций (0 - только чтение)
+    private double invalidateRatio = 0.0;
+
+    // Через какой кэш читаем
+    private ReadPath readPath = ReadPath.LOADING;
+
+    // Начальное значение для генераторов ключей (поток i получает seed + i)
+    private long seed = 42;
+
+    // Геттеры и сеттеры
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Duration duration) {
+        this.duration = duration;
+    }
+
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    public void setRequestCount(long requestCount) {
+        this.requestCount = requestCount;
+    }
+
+    public KeyDistribution getDistribution() {
+        return distribution;
+    }
+
+    public void setDistribution(KeyDistribution distribution) {
+        this.distribution = distribution;
+    }
+
+    public int getKeySpace() {
+        return keySpace;
+    }
+
+    public void setKeySpace(int keySpace) {
+        this.keySpace = keySpace;
+    }
+
+    public double getInvalidateRatio() {
+        return invalidateRatio;
+    }
+
+    public void setInvalidateRatio(double invalidateRatio) {
+        this.invalidateRatio = invalidateRatio;
+    }
+
+    public ReadPath getReadPath() {
+        return readPath;
+    }
+
+    public void setReadPath(ReadPath readPath) {
+        this.readPath = readPath;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.load;
+
+import org.example.model.Book;
+import org.example.service.BookService;
+
+// Через какой метод BookService генератор нагрузки читает книги
+public enum ReadPath {
+
+    SIMPLE {
+        @Override
+        public Book read(BookService bookService, long id) {
+            return bookService.getBookWithSimpleCache(id);
+        }
+    },
+
+    EXPIRING {
+        @Override
+        public Book read(BookService bookService, long id) {
+            return bookService.getBookWithExpiringCache(id);
+        }
+    },
+
+    LOADING {
+        @Override
+        public Book read(BookService bookService, long id) {
+            return bookService.getBookWithLoadingCache(id);
+        }
+    },
+
+    // getBook(long): примитивный кэш перед автозагружающим (нужен frontTierCapacity > 0)
+    FRONT_TIER {
+        @Override
+        public Book read(BookService bookService, long id) {
+            return bookService.getBook(id);
+        }
+    };
+
+    public abstract Book read(BookService bookService, long id);
+}
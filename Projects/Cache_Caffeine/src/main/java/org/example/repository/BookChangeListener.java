@@ -0,0 +1,11 @@
+package org.example.repository;
+
+import org.example.model.Book;
+
+// Уведомление об изменении книги в BookRepository.
+// previous == null - книга добавлена, current == null - книга удалена
+@FunctionalInterface
+public interface BookChangeListener {
+
+    void bookChanged(Book previous, Book current);
+}
@@ -3,27 +3,268 @@ package org.example.repository;
 import org.example.model.Book;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
+/*
+Имитация базы данных книг, безопасная для многопоточной работы.
+Данные разбиты на сегменты (lock striping): у каждого сегмента своя HashMap и свой ReadWriteLock,
+поэтому чтения не блокируют друг друга, а запись блокирует только свой сегмент.
+Каждый запрос (одиночный или пакетный) платит задержку из LatencyModel,
+а Semaphore ограничивает число одновременных запросов - как пул соединений к базе.
+Фильтр Блума по id обновляется при каждой записи и позволяет без запроса отсечь несуществующие id.
+Поиск по словам названия и автора идет через инвертированный индекс BookSearchIndex, а не перебором книг.
+Подписчики BookChangeListener узнают о каждом изменении (например, чтобы сбросить закэшированные результаты поиска).
+*/
 public class BookRepository {
 
-    private final Map<Long, Book> database = new HashMap<>();
+    // Количество сегментов (степень двойки)
+    private static final int STRIPES = 16;
+
+    // Настройки фильтра Блума по умолчанию: до 100 тысяч книг, 1% ложных срабатываний (около 120 КБ)
+    private static final long DEFAULT_EXPECTED_BOOKS = 100_000;
+    private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    private final Map<Long, Book>[] stripes;
+    private final ReadWriteLock[] locks;
+
+    private final LatencyModel latencyModel;
+
+    // "Пул соединений": больше maxConcurrentQueries запросов одновременно не выполняется, остальные ждут
+    private final Semaphore connections;
+
+    // Индекс существования: есть ли книга с таким id (без ложноотрицательных ответов)
+    private volatile BookBloomFilter existenceIndex;
+
+    // Новый фильтр, который сейчас заполняется в resizeExistenceIndex: сохранения попадают и в него
+    private volatile BookBloomFilter rebuildingIndex;
+
+    // Индекс для поиска по префиксам слов названия и автора
+    private final BookSearchIndex searchIndex = new BookSearchIndex();
+
+    private final List<BookChangeListener> listeners = new CopyOnWriteArrayList<>();
 
     public BookRepository() {
+        this(LatencyModel.fixed(Duration.ofSeconds(1)), Integer.MAX_VALUE);
+    }
+
+    public BookRepository(LatencyModel latencyModel, int maxConcurrentQueries) {
+        this(latencyModel, maxConcurrentQueries, DEFAULT_EXPECTED_BOOKS, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BookRepository(LatencyModel latencyModel, int maxConcurrentQueries,
+                          long expectedBooks, double falsePositiveRate) {
+        this.latencyModel = latencyModel;
+        this.existenceIndex = new BookBloomFilter(expectedBooks, falsePositiveRate);
+        this.connections = new Semaphore(maxConcurrentQueries, true);
+        this.stripes = new Map[STRIPES];
+        this.locks = new ReadWriteLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new HashMap<>();
+            locks[i] = new ReentrantReadWriteLock();
+        }
+
         // Имитируем базу данных с некоторыми книгами
-        database.put(1L, new Book(1L, "Война и Мир", "Лев Толстой", BigDecimal.valueOf(29.99)));
-        database.put(2L, new Book(2L, "Преступление и наказание", "Федор Достоевский", new BigDecimal("24.99")));
-        database.put(3L, new Book(3L, "Мастер и Маргарита", "Михаил Булгаков", new BigDecimal("19.99")));
+        put(new Book(1L, "Война и Мир", "Лев Толстой", BigDecimal.valueOf(29.99)));
+        put(new Book(2L, "Преступление и наказание", "Федор Достоевский", new BigDecimal("24.99")));
+        put(new Book(3L, "Мастер и Маргарита", "Михаил Булгаков", new BigDecimal("19.99")));
     }
 
     public Book findByid(Long id) {
         // Имитируем задержку базы данных
+        return query(() -> get(id));
+    }
+
+    // Пакетная загрузка: один "запрос" к базе на любое количество id (аналог WHERE id IN (...))
+    // Отсутствующие id в результат не попадают
+    public Map<Long, Book> findAllById(Collection<? extends Long> ids) {
+        return query(() -> {
+            Map<Long, Book> result = new HashMap<>();
+            for (Long id : ids) {
+                Book book = get(id);
+                if (book != null) {
+                    result.put(id, book);
+                }
+            }
+            return result;
+        });
+    }
+
+    // Проверка по фильтру Блума, без задержки и без обращения к данным.
+    // false - книги с таким id точно нет, true - скорее всего есть
+    public boolean mightContain(Long id) {
+        return existenceIndex.mightContain(id);
+    }
+
+    public BookBloomFilter getExistenceIndex() {
+        return existenceIndex;
+    }
+
+    // Пересоздает фильтр Блума под другое ожидаемое число книг и долю ложных срабатываний
+    // (от них зависит занимаемая память) и заполняет его id всех книг.
+    // Пока новый фильтр заполняется, сохранения пишут в оба фильтра, поэтому ложноотрицательных
+    // ответов нет ни до, ни после замены. С теми же параметрами ничего не делает
+    public synchronized void resizeExistenceIndex(long expectedBooks, double falsePositiveRate) {
+        BookBloomFilter current = existenceIndex;
+        if (current.expectedInsertions() == expectedBooks && current.falsePositiveRate() == falsePositiveRate) {
+            return;
+        }
+        BookBloomFilter resized = new BookBloomFilter(expectedBooks, falsePositiveRate);
+        rebuildingIndex = resized;
+        for (int i = 0; i < STRIPES; i++) {
+            Lock lock = locks[i].readLock();
+            lock.lock();
+            try {
+                stripes[i].keySet().forEach(resized::put);
+            } finally {
+                lock.unlock();
+            }
+        }
+        // Сначала публикуем новый фильтр, потом убираем rebuildingIndex: put, увидевший null,
+        // уже видит и новый existenceIndex
+        existenceIndex = resized;
+        rebuildingIndex = null;
+    }
+
+    // Поиск по префиксам слов названия и автора (один запрос к базе), книги по возрастанию id
+    public List<Book> search(String query) {
+        return query(() -> {
+            List<Book> result = new ArrayList<>();
+            for (Long id : searchIndex.search(query)) {
+                Book book = get(id);
+                if (book != null) {
+                    result.add(book);
+                }
+            }
+            return result;
+        });
+    }
+
+    public void addChangeListener(BookChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(BookChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public Book save(Book book) {
+        return query(() -> {
+            put(book);
+            return book;
+        });
+    }
+
+    // Пакетное сохранение одним запросом
+    public List<Book> saveAll(Collection<Book> books) {
+        return query(() -> {
+            books.forEach(this::put);
+            return new ArrayList<>(books);
+        });
+    }
+
+    public void deleteById(Long id) {
+        query(() -> {
+            int stripe = stripeOf(id);
+            Lock lock = locks[stripe].writeLock();
+            Book previous;
+            lock.lock();
+            try {
+                previous = stripes[stripe].remove(id);
+                if (previous != null) {
+                    searchIndex.remove(id);
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (previous != null) {
+                notifyListeners(previous, null);
+            }
+            return previous;
+        });
+    }
+
+    private Book get(Long id) {
+        int stripe = stripeOf(id);
+        Lock lock = locks[stripe].readLock();
+        lock.lock();
+        try {
+            return stripes[stripe].get(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(Book book) {
+        int stripe = stripeOf(book.getId());
+        Lock lock = locks[stripe].writeLock();
+        Book previous;
+        lock.lock();
         try {
-            Thread.sleep(1000);
+            // Сначала фильтр, потом данные: иначе читатель мог бы увидеть книгу в базе, но "нет" в фильтре.
+            // Под блокировкой сегмента: resizeExistenceIndex либо увидит книгу в сегменте, либо книга попадет
+            // в rebuildingIndex (rebuildingIndex читается раньше existenceIndex)
+            BookBloomFilter rebuilding = rebuildingIndex;
+            if (rebuilding != null) {
+                rebuilding.put(book.getId());
+            }
+            existenceIndex.put(book.getId());
+            previous = stripes[stripe].put(book.getId(), book);
+            // Индекс обновляется под той же блокировкой: два одновременных сохранения одного id
+            // попадают в индекс в том же порядке, что и в данные, и в индексе остаются слова последней версии
+            searchIndex.index(book);
+        } finally {
+            lock.unlock();
+        }
+        notifyListeners(previous, book);
+    }
+
+    // Подписчики вызываются после изменения данных и индекса, вне блокировок сегментов.
+    // Порядок блокировок всегда один: сегмент, затем монитор индекса (индекс сегменты не блокирует)
+    private void notifyListeners(Book previous, Book current) {
+        for (BookChangeListener listener : listeners) {
+            listener.bookChanged(previous, current);
+        }
+    }
+
+    // Выполняет запрос: ждем свободное "соединение", платим задержку, выполняем действие
+    private <T> T query(Supplier<T> action) {
+        connections.acquireUninterruptibly();
+        try {
+            simulateLatency();
+            return action.get();
+        } finally {
+            connections.release();
+        }
+    }
+
+    private void simulateLatency() {
+        long nanos = latencyModel.sampleNanos();
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
-        return database.get(id);
+    }
+
+    private static int stripeOf(Long id) {
+        // Перемешиваем биты, чтобы последовательные id равномерно распределялись по сегментам
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (STRIPES - 1);
     }
 }
@@ -0,0 +1,128 @@
+package org.example.repository;
+
+import org.example.model.Book;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/*
+Инвертированный индекс по словам названия и автора: слово -> id книг.
+Слова хранятся в отсортированной ConcurrentSkipListMap, поэтому поиск по префиксу - это
+диапазон от префикса до префикс + Character.MAX_VALUE без перебора всех книг.
+Запрос "толст вой" находит книги, у которых есть слово на "толст" И слово на "вой".
+Слова приводятся к нижнему регистру, "ё" заменяется на "е".
+
+Изменения индекса выполняются по одному (synchronized), поиск идет без блокировок:
+во время переиндексации книги поиск может кратко увидеть ее без части слов.
+*/
+public class BookSearchIndex {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    // Слово -> id книг, в которых оно встречается
+    private final NavigableMap<String, Set<Long>> postings = new ConcurrentSkipListMap<>();
+
+    // id книги -> ее слова (нужно, чтобы при изменении и удалении убрать старые слова)
+    private final Map<Long, Set<String>> tokensById = new ConcurrentHashMap<>();
+
+    public synchronized void index(Book book) {
+        remove(book.getId());
+        Set<String> tokens = new HashSet<>(tokenize(book.getTitle()));
+        tokens.addAll(tokenize(book.getAuthor()));
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, key -> ConcurrentHashMap.newKeySet()).add(book.getId());
+        }
+        tokensById.put(book.getId(), tokens);
+    }
+
+    public synchronized void remove(Long id) {
+        Set<String> tokens = tokensById.remove(id);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            Set<Long> ids = postings.get(token);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                postings.remove(token);
+            }
+        }
+    }
+
+    // id книг, подходящих под запрос, по возрастанию. Пустой запрос ничего не находит
+    public SortedSet<Long> search(String query) {
+        List<String> prefixes = tokenize(query);
+        if (prefixes.isEmpty()) {
+            return Collections.emptySortedSet();
+        }
+        SortedSet<Long> result = null;
+        for (String prefix : prefixes) {
+            SortedSet<Long> matched = new TreeSet<>();
+            for (Set<Long> ids : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+                matched.addAll(ids);
+            }
+            if (result == null) {
+                result = matched;
+            } else {
+                result.retainAll(matched);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    // Количество разных слов в индексе
+    public int tokenCount() {
+        return postings.size();
+    }
+
+    // Подходит ли книга под запрос (те же правила, что и search), без обращения к индексу
+    public static boolean matches(String query, Book book) {
+        if (book == null) {
+            return false;
+        }
+        List<String> prefixes = tokenize(query);
+        if (prefixes.isEmpty()) {
+            return false;
+        }
+        List<String> tokens = new ArrayList<>(tokenize(book.getTitle()));
+        tokens.addAll(tokenize(book.getAuthor()));
+        for (String prefix : prefixes) {
+            if (tokens.stream().noneMatch(token -> token.startsWith(prefix))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Приведение запроса к каноническому виду: "  Лев  ТОЛСТОЙ " и "лев толстой" - один и тот же запрос
+    public static String normalize(String query) {
+        return String.join(" ", tokenize(query));
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(text.toLowerCase(Locale.ROOT).replace('ё', 'е'))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.repository;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Модель задержки одного запроса к "базе данных"
+@FunctionalInterface
+public interface LatencyModel {
+
+    // Задержка очередного запроса в наносекундах
+    long sampleNanos();
+
+    // Без задержки - для бенчмарков самого кэша
+    static LatencyModel none() {
+        return () -> 0;
+    }
+
+    // Одинаковая задержка на каждый запрос (исходное поведение репозитория - 1 секунда)
+    static LatencyModel fixed(Duration latency) {
+        long nanos = latency.toNanos();
+        return () -> nanos;
+    }
+
+    // Логнормальное распределение: большинство запросов около медианы, но есть длинный хвост,
+    // как у настоящей базы. sigma задает ширину хвоста (0.5 - умеренный, 1.0 - тяжелый)
+    static LatencyModel logNormal(Duration median, double sigma) {
+        double medianNanos = median.toNanos();
+        return () -> (long) (medianNanos * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+}
@@ -1,64 +1,618 @@
 package org.example.service;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.example.cache.AdaptiveBookExpiry;
+import org.example.cache.BookCacheSnapshot;
+import org.example.cache.BookWeigher;
+import org.example.cache.CoalescingBookLoader;
+import org.example.cache.LongBookCache;
+import org.example.cache.WriteBehindBuffer;
+import org.example.config.BookCacheSettings;
+import org.example.config.WriteMode;
 import org.example.model.Book;
+import org.example.model.CachedBook;
+import org.example.repository.BookChangeListener;
 import org.example.repository.BookRepository;
+import org.example.repository.BookSearchIndex;
+import org.example.stats.BookCacheStats;
+import org.example.stats.BookCacheStatsBean;
+import org.example.stats.BookStatsCounter;
+import org.example.trace.AccessTraceRecorder;
 
+import javax.management.ObjectName;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class BookService {
+public class BookService implements AutoCloseable {
+
+    // Количество сегментов блокировок updateBook (степень двойки)
+    private static final int WRITE_LOCK_STRIPES = 64;
 
     private final BookRepository bookRepository;
 
+    private final BookCacheSettings settings;
+
+    // Общий загрузчик всех кэшей: одновременные промахи по одному id превращаются в одну загрузку
+    private final CoalescingBookLoader loader;
+
+    // Все кэши хранят неизменяемые CachedBook, наружу отдаются копии Book
     // Простой кэш с ограничением по размеру
-    private final Cache<Long, Book> simpleCache;
+    private final Cache<Long, CachedBook> simpleCache;
 
     // Кэш с автоматическим истечением срока действия
-    private final Cache<Long, Book> expiringCache;
+    private final Cache<Long, CachedBook> expiringCache;
+
+    // Время жизни записей expiringCache по частоте изменений книг (null - фиксированные 5 минут)
+    private final AdaptiveBookExpiry adaptiveExpiry;
 
     // Кэш с автоматической загрузкой данных
-    private final LoadingCache<Long, Book> loadingCache;
+    private final LoadingCache<Long, CachedBook> loadingCache;
+
+    // Асинхронный вариант того же кэша, есть только в режиме asyncRefresh (иначе null)
+    private final AsyncLoadingCache<Long, CachedBook> asyncLoadingCache;
+
+    // Примитивный кэш перед автозагружающим для горячих id (null, если выключен)
+    private final LongBookCache frontTier;
+
+    // Запись трассы обращений для офлайн-симуляции политик (null, если выключена)
+    private final AccessTraceRecorder traceRecorder;
+
+    // Буфер отложенной записи (null, если режим не WRITE_BEHIND)
+    private final WriteBehindBuffer writeBehind;
+
+    // Кэш результатов поиска: нормализованный запрос -> id найденных книг.
+    // Сами книги берутся из автозагружающего кэша, поэтому изменение цены не сбрасывает результаты поиска
+    private final Cache<String, List<Long>> searchCache;
+
+    // Номер версии данных для поиска: растет при каждом изменении книги в репозитории
+    private final AtomicLong searchVersion = new AtomicLong();
+
+    private final BookChangeListener changeListener = this::onBookChanged;
+
+    // Блокировки записи через updateBook по сегментам id: обновления одной книги не перемешиваются
+    private final Lock[] writeLocks = new Lock[WRITE_LOCK_STRIPES];
+
+    // Статистика каждого кэша (simple, expiring, loading) и сами кэши под теми же именами
+    private final Map<String, BookStatsCounter> statsCounters = new LinkedHashMap<>();
+    private final Map<String, Cache<Long, CachedBook>> namedCaches = new LinkedHashMap<>();
+
+    // Периодическая отправка статистики в StatsSink (null, если получатель не задан)
+    private final ScheduledExecutorService statsPublisher;
+
+    // Зарегистрированные в JMX бины статистики
+    private final List<ObjectName> jmxNames = new ArrayList<>();
 
     public BookService(BookRepository bookRepository) {
+        this(bookRepository, new BookCacheSettings());
+    }
+
+    public BookService(BookRepository bookRepository, BookCacheSettings settings) {
         this.bookRepository = bookRepository;
+        this.settings = settings;
+        for (int i = 0; i < WRITE_LOCK_STRIPES; i++) {
+            writeLocks[i] = new ReentrantLock();
+        }
+        if (settings.isExistenceCheck()) {
+            bookRepository.resizeExistenceIndex(settings.getExistenceExpectedBooks(),
+                    settings.getExistenceFalsePositiveRate());
+        }
+        this.loader = new CoalescingBookLoader(bookRepository, settings.isExistenceCheck());
+
+        this.frontTier = settings.getFrontTierCapacity() > 0
+                ? new LongBookCache(settings.getFrontTierCapacity())
+                : null;
 
         // Инициализация простого кэша
-        this.simpleCache = Caffeine.newBuilder()
-                .maximumSize(100)
+        this.simpleCache = newCacheBuilder("simple")
                 .build();
 
         // Инициализация кэша с истечением срока действия
-        this.expiringCache = Caffeine.newBuilder()
-                .expireAfterWrite(5, TimeUnit.MINUTES)
-                .maximumSize(100)
+        if (settings.isAdaptiveExpiry()) {
+            this.adaptiveExpiry = new AdaptiveBookExpiry(
+                    settings.getMinExpiry(), settings.getMaxExpiry(), settings.getExpiryTrackedBooks());
+            this.expiringCache = newCacheBuilder("expiring")
+                    .expireAfter(adaptiveExpiry)
+                    .build();
+        } else {
+            this.adaptiveExpiry = null;
+            this.expiringCache = newCacheBuilder("expiring")
+                    .expireAfterWrite(5, TimeUnit.MINUTES)
+                    .build();
+        }
+
+        // Инициализация загружающего кэша.
+        // Любое удаление записи (вытеснение, истечение, замена, фоновое обновление) сбрасывает ее копию
+        // в примитивном кэше getBook(long). Уведомления приходят на settings.getExecutor()
+        Caffeine<Long, CachedBook> loadingBuilder = newCacheBuilder("loading")
+                .executor(settings.getExecutor())
+                .removalListener((Long id, CachedBook book, RemovalCause cause) -> invalidateFrontTier(id));
+        if (settings.isAsyncRefresh()) {
+            // Refresh-ahead: после refreshAfterWrite запись перезагружается в фоне на заданном executor,
+            // а вызывающий сразу получает старое значение вместо ожидания findByid.
+            // Синхронные методы работают через представление synchronous()
+            this.asyncLoadingCache = loadingBuilder
+                    .refreshAfterWrite(settings.getRefreshAfterWrite())
+                    .buildAsync(new BookLoader());
+            this.loadingCache = asyncLoadingCache.synchronous();
+        } else {
+            // Без refresh-ahead остается обычный синхронный кэш: асинхронный промах
+            // (future + передача в пул) заметно дороже (видно в BookServiceBenchmark)
+            this.asyncLoadingCache = null;
+            this.loadingCache = loadingBuilder.build(new BookLoader());
+        }
+        namedCaches.put("simple", simpleCache);
+        namedCaches.put("expiring", expiringCache);
+        namedCaches.put("loading", loadingCache);
+
+        this.searchCache = Caffeine.newBuilder()
+                .maximumSize(settings.getSearchCacheSize())
                 .build();
 
-        // Инициализация загружающего кэша
-        this.loadingCache = Caffeine.newBuilder()
-                .maximumSize(100)
-                .build(bookRepository::findByid);
+        // Ресурсы с потоками, файлами и регистрациями. Если что-то из них не создалось
+        // (например, имя JMX уже занято другим сервисом), уже созданное освобождается, как в close()
+        AccessTraceRecorder recorder = null;
+        WriteBehindBuffer buffer = null;
+        try {
+            if (settings.getJmxName() != null) {
+                for (String cacheName : namedCaches.keySet()) {
+                    Cache<Long, CachedBook> cache = namedCaches.get(cacheName);
+                    jmxNames.add(BookCacheStatsBean.register(settings.getJmxName(), cacheName,
+                            statsCounters.get(cacheName), () -> currentWeightedSize(cache)));
+                }
+            }
+            if (settings.getTracePath() != null) {
+                recorder = new AccessTraceRecorder(settings.getTracePath());
+            }
+            bookRepository.addChangeListener(changeListener);
+            if (settings.getWriteMode() == WriteMode.WRITE_BEHIND) {
+                buffer = new WriteBehindBuffer(bookRepository, settings.getWriteBehindInterval(),
+                        settings.getWriteBehindBatchSize());
+            }
+        } catch (RuntimeException e) {
+            bookRepository.removeChangeListener(changeListener);
+            jmxNames.forEach(BookCacheStatsBean::unregister);
+            if (recorder != null) {
+                recorder.close();
+            }
+            throw e;
+        }
+        this.traceRecorder = recorder;
+        this.writeBehind = buffer;
+
+        if (settings.getStatsSink() != null) {
+            this.statsPublisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "book-cache-stats");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalNanos = settings.getStatsInterval().toNanos();
+            statsPublisher.scheduleAtFixedRate(this::publishStats, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        } else {
+            this.statsPublisher = null;
+        }
+
+        // Теплый старт: снимок загружается до того, как сервис начнет обслуживать запросы
+        Path snapshotPath = settings.getSnapshotPath();
+        if (snapshotPath != null && Files.exists(snapshotPath)) {
+            try {
+                loadSnapshot(snapshotPath);
+            } catch (UncheckedIOException | IllegalStateException e) {
+                // Битый снимок не должен мешать запуску: просто стартуем с холодным кэшем
+                System.err.println("Снимок кэша " + snapshotPath + " не загружен: " + e.getMessage());
+            }
+        }
+    }
+
+    // Общая часть настройки всех кэшей: ограничение по количеству записей или по байтам и статистика
+    private Caffeine<Object, Object> newCacheBuilder(String cacheName) {
+        BookStatsCounter statsCounter = new BookStatsCounter();
+        statsCounters.put(cacheName, statsCounter);
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .recordStats(() -> statsCounter);
+        if (settings.getMaximumWeightBytes() > 0) {
+            // weigher() настраивает тот же билдер и лишь уточняет типы в возвращаемом значении
+            builder.maximumWeight(settings.getMaximumWeightBytes())
+                    .weigher(new BookWeigher());
+        } else {
+            builder.maximumSize(100);
+        }
+        return builder;
     }
 
     // Метод с использованием простого кэша
     public Book getBookWithSimpleCache(Long id) {
-        return simpleCache.get(id, bookRepository::findByid);
+        recordAccess(id);
+        return CachedBook.toBookOrNull(simpleCache.get(id, this::load));
     }
 
     // Метод с использованием кэша с истечением срока действия
     public Book getBookWithExpiringCache(Long id) {
-        return expiringCache.get(id, bookRepository::findByid);
+        recordAccess(id);
+        return CachedBook.toBookOrNull(expiringCache.get(id, this::load));
     }
 
     // Метод с использованием автозагружающего кэша
     public Book getBookWithLoadingCache(Long id) {
-        return loadingCache.get(id);
+        recordAccess(id);
+        return CachedBook.toBookOrNull(loadingCache.get(id));
+    }
+
+    // Получение по примитивному id: сначала примитивный кэш (без упаковки id и узлов Caffeine),
+    // при промахе - автозагружающий кэш. Без frontTierCapacity равносилен getBookWithLoadingCache
+    public Book getBook(long id) {
+        recordAccess(id);
+        if (frontTier == null) {
+            return CachedBook.toBookOrNull(loadingCache.get(id));
+        }
+        CachedBook book = frontTier.get(id);
+        if (book == null) {
+            book = loadingCache.get(id);
+            if (book != null) {
+                frontTier.put(id, book);
+                // Пока книга шла сюда, updateBook, invalidateCache или вытеснение могли заменить или убрать ее
+                // в автозагружающем кэше, а их сброс примитивного кэша - пройти до нашей записи.
+                // Поэтому после записи сверяемся с текущим значением (asMap().get не считается в статистике)
+                // и при расхождении убираем свою копию: примитивный кэш никогда не держит того, чего нет в Caffeine
+                if (loadingCache.asMap().get(id) != book) {
+                    frontTier.invalidate(id);
+                }
+            }
+        }
+        return CachedBook.toBookOrNull(book);
+    }
+
+    private void invalidateFrontTier(Long id) {
+        if (frontTier != null && id != null) {
+            frontTier.invalidate(id);
+        }
+    }
+
+    // Асинхронный вариант: в режиме asyncRefresh не блокирует вызывающий поток на время загрузки,
+    // в обычном режиме загрузка выполняется в вызывающем потоке
+    public CompletableFuture<Book> getBookWithLoadingCacheAsync(Long id) {
+        recordAccess(id);
+        if (asyncLoadingCache == null) {
+            return CompletableFuture.completedFuture(CachedBook.toBookOrNull(loadingCache.get(id)));
+        }
+        return asyncLoadingCache.get(id).thenApply(CachedBook::toBookOrNull);
+    }
+
+    // Пакетное получение книг через автозагружающий кэш:
+    // все промахи загружаются одним запросом к репозиторию (CacheLoader.loadAll)
+    // Отсутствующие в репозитории id в результат не попадают
+    public Map<Long, Book> getBooks(Collection<Long> ids) {
+        if (traceRecorder != null) {
+            ids.forEach(this::recordAccess);
+        }
+        Map<Long, Book> books = new LinkedHashMap<>();
+        loadingCache.getAll(ids).forEach((id, book) -> books.put(id, book.toBook()));
+        return books;
+    }
+
+    // Поиск по префиксам слов названия и автора.
+    // Повторный запрос обслуживается из кэша результатов без обращения к репозиторию (если книги есть в кэше).
+    // Изменения в режиме WRITE_BEHIND попадают в поиск после записи в репозиторий
+    public List<Book> searchBooks(String query) {
+        String key = BookSearchIndex.normalize(query);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = searchCache.getIfPresent(key);
+        if (ids != null) {
+            Map<Long, CachedBook> found = loadingCache.getAll(ids);
+            List<Book> books = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                CachedBook book = found.get(id);
+                if (book != null) {
+                    books.add(book.toBook());
+                }
+            }
+            return books;
+        }
+
+        long version = searchVersion.get();
+        List<Book> books = new ArrayList<>();
+        List<Long> foundIds = new ArrayList<>();
+        for (Book book : bookRepository.search(key)) {
+            books.add(CachedBook.from(book).toBook());
+            foundIds.add(book.getId());
+        }
+        // Результат кэшируется, только если за время поиска книги не менялись.
+        // Повторная проверка после put закрывает гонку с onBookChanged, который мог пройти по кэшу до put
+        if (searchVersion.get() == version) {
+            searchCache.put(key, List.copyOf(foundIds));
+            if (searchVersion.get() != version) {
+                searchCache.invalidate(key);
+            }
+        }
+        return books;
+    }
+
+    // Сколько поисковых запросов сейчас в кэше результатов
+    public long getCachedSearchCount() {
+        searchCache.cleanUp();
+        return searchCache.estimatedSize();
+    }
+
+    // Сколько еще проживет запись книги в кэше с истечением (пусто, если книги в нем нет)
+    public Optional<Duration> getExpiringTimeToLive(Long id) {
+        if (adaptiveExpiry != null) {
+            return expiringCache.policy().expireVariably().flatMap(policy -> policy.getExpiresAfter(id));
+        }
+        return expiringCache.policy().expireAfterWrite().flatMap(policy ->
+                policy.ageOf(id).map(age -> policy.getExpiresAfter().minus(age)));
+    }
+
+    // Изменение книги учитывается в истории для адаптивного времени жизни.
+    // Если в кэше лежит старая версия, ее оставшийся срок сокращается до нового TTL
+    private void recordExpiryChange(Long id) {
+        long now = System.nanoTime();
+        adaptiveExpiry.recordChange(id, now);
+        Duration ttl = Duration.ofNanos(adaptiveExpiry.ttlNanos(id, now));
+        expiringCache.policy().expireVariably().ifPresent(policy ->
+                policy.getExpiresAfter(id)
+                        .filter(remaining -> remaining.compareTo(ttl) > 0)
+                        .ifPresent(remaining -> policy.setExpiresAfter(id, ttl)));
+    }
+
+    // Изменение книги в репозитории: учитываем его в адаптивном времени жизни
+    // и сбрасываем только те запросы поиска, для которых книга появилась в результате или пропала из него
+    // Если название и автор не менялись (например, поток обновлений цен), результаты поиска остаются
+    // прежними и проход по всем запросам в кэше не нужен
+    private void onBookChanged(Book previous, Book current) {
+        Long id = current != null ? current.getId() : previous.getId();
+        if (adaptiveExpiry != null) {
+            recordExpiryChange(id);
+        }
+        invalidateFrontTier(id);
+        if (previous != null && current != null
+                && Objects.equals(previous.getTitle(), current.getTitle())
+                && Objects.equals(previous.getAuthor(), current.getAuthor())) {
+            return;
+        }
+        searchVersion.incrementAndGet();
+        searchCache.asMap().keySet().removeIf(query ->
+                BookSearchIndex.matches(query, previous) != BookSearchIndex.matches(query, current));
+    }
+
+    private void recordAccess(long id) {
+        if (traceRecorder != null) {
+            traceRecorder.record(id);
+        }
+    }
+
+    // Обновление книги: кэши сразу получают новую версию, повторная загрузка не нужна.
+    // WRITE_THROUGH - сначала запись в репозиторий (при ошибке кэши не меняются),
+    // WRITE_BEHIND - запись в буфер, в репозиторий изменение уйдет со следующим сбросом
+    // Обновления одного id идут по очереди под блокировкой сегмента writeLocks: в кэшах остается та же
+    // версия, что последней ушла в репозиторий (или в буфер). Запись в репозиторий делается
+    // не внутри compute кэша - иначе медленный save держал бы блокировку корзины ConcurrentHashMap
+    // и останавливал загрузки и инвалидации соседних id
+    public void updateBook(Book book) {
+        if (book == null || book.getId() == null) {
+            throw new IllegalArgumentException("Book and its id must not be null");
+        }
+        // Снимок книги: дальнейшие изменения объекта вызывающим не попадут ни в кэши, ни в буфер
+        CachedBook cached = CachedBook.from(book);
+        Lock lock = writeLockOf(cached.id());
+        lock.lock();
+        try {
+            if (writeBehind != null) {
+                writeBehind.enqueue(cached.toBook());
+            } else {
+                bookRepository.save(cached.toBook());
+            }
+            simpleCache.put(cached.id(), cached);
+            expiringCache.put(cached.id(), cached);
+            loadingCache.put(cached.id(), cached);
+            if (frontTier != null) {
+                frontTier.put(cached.id(), cached);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Lock writeLockOf(long id) {
+        // Перемешиваем биты, чтобы последовательные id равномерно распределялись по сегментам
+        long h = id * 0x9E3779B97F4A7C15L;
+        return writeLocks[(int) (h ^ (h >>> 32)) & (WRITE_LOCK_STRIPES - 1)];
+    }
+
+    // Принудительный сброс буфера отложенной записи, возвращает число записанных книг
+    public int flushWrites() {
+        return writeBehind != null ? writeBehind.flush() : 0;
+    }
+
+    public int getPendingWriteCount() {
+        return writeBehind != null ? writeBehind.getPendingCount() : 0;
+    }
+
+    // Сколько обновлений склеено с более поздними обновлениями той же книги до записи в репозиторий
+    public long getCoalescedWriteCount() {
+        return writeBehind != null ? writeBehind.getCoalescedCount() : 0;
     }
 
     public void invalidateCache(Long id) {
         simpleCache.invalidate(id);
         expiringCache.invalidate(id);
         loadingCache.invalidate(id);
+        if (frontTier != null) {
+            frontTier.invalidate(id);
+        }
+    }
+
+    // Сколько id загружено из репозитория и сколько одновременных промахов было объединено
+    public long getLoadCount() {
+        return loader.getLoadCount();
+    }
+
+    public long getDeduplicatedLoadCount() {
+        return loader.getDeduplicatedCount();
+    }
+
+    // Сколько промахов по несуществующим id отсечено фильтром Блума без запроса к репозиторию
+    public long getRejectedLoadCount() {
+        return loader.getRejectedCount();
+    }
+
+    // Текущий вес каждого кэша: в байтах при maximumWeightBytes, иначе - количество записей
+    public Map<String, Long> getWeightedSizes() {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        namedCaches.forEach((name, cache) -> sizes.put(name, weightedSize(cache)));
+        return sizes;
+    }
+
+    // Статистика всех кэшей: попадания, промахи, вытеснения, перцентили времени загрузки, текущий вес.
+    // Попадания в примитивный кэш getBook(long) сюда не входят - они не доходят до Caffeine
+    public Map<String, BookCacheStats> getCacheStats() {
+        Map<String, BookCacheStats> stats = new LinkedHashMap<>();
+        namedCaches.keySet().forEach(name -> stats.put(name, getCacheStats(name)));
+        return stats;
+    }
+
+    public BookCacheStats getCacheStats(String cacheName) {
+        BookStatsCounter counter = statsCounters.get(cacheName);
+        if (counter == null) {
+            throw new IllegalArgumentException("Unknown cache: " + cacheName);
+        }
+        return BookCacheStats.of(cacheName, counter.snapshot(), counter.getLoadLatency(),
+                weightedSize(namedCaches.get(cacheName)));
+    }
+
+    private void publishStats() {
+        try {
+            settings.getStatsSink().publish(getCacheStats().values());
+        } catch (RuntimeException e) {
+            // Ошибка получателя не должна останавливать периодическую отправку
+            System.err.println("Статистика кэшей не отправлена: " + e.getMessage());
+        }
+    }
+
+    private static long weightedSize(Cache<Long, CachedBook> cache) {
+        // Вес считается при обслуживании кэша, cleanUp() применяет отложенные операции
+        cache.cleanUp();
+        return currentWeightedSize(cache);
+    }
+
+    // Вес без обслуживания кэша (для JMX): может не учитывать самые последние записи
+    private static long currentWeightedSize(Cache<Long, CachedBook> cache) {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(cache.estimatedSize()))
+                .orElseGet(cache::estimatedSize);
+    }
+
+    // Сохраняет содержимое автозагружающего кэша в файл в порядке доступа (от холодных к горячим)
+    public int saveSnapshot(Path path) {
+        Map<Long, CachedBook> hottestFirst = loadingCache.policy().eviction()
+                .map(eviction -> eviction.hottest(Integer.MAX_VALUE))
+                .orElseGet(loadingCache::asMap);
+        List<Book> books = new ArrayList<>(hottestFirst.size());
+        hottestFirst.values().forEach(book -> books.add(book.toBook()));
+        Collections.reverse(books);
+        BookCacheSnapshot.write(path, books);
+        return books.size();
+    }
+
+    // Загружает снимок в автозагружающий кэш одной пачкой, без обращений к репозиторию
+    public int loadSnapshot(Path path) {
+        List<Book> books = BookCacheSnapshot.read(path);
+        for (Book book : books) {
+            loadingCache.put(book.getId(), CachedBook.from(book));
+        }
+        return books.size();
+    }
+
+    // При остановке сервиса записываем отложенные изменения, сохраняем снимок и дописываем трассу, если они настроены
+    @Override
+    public void close() {
+        bookRepository.removeChangeListener(changeListener);
+        if (statsPublisher != null) {
+            statsPublisher.shutdownNow();
+            // Последний снимок, чтобы получатель увидел итог работы
+            publishStats();
+        }
+        jmxNames.forEach(BookCacheStatsBean::unregister);
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        if (traceRecorder != null) {
+            traceRecorder.close();
+        }
+        if (settings.getSnapshotPath() != null) {
+            saveSnapshot(settings.getSnapshotPath());
+        }
+    }
+
+    // Загрузка при промахе: еще не записанная версия из буфера важнее той, что лежит в репозитории
+    // Загруженная книга сразу переводится в компактную форму, в кэш попадает только она
+    private CachedBook load(Long id) {
+        if (writeBehind != null) {
+            Book pendingBook = writeBehind.getPending(id);
+            if (pendingBook != null) {
+                return CachedBook.from(pendingBook);
+            }
+        }
+        return CachedBook.from(loader.load(id));
+    }
+
+    private Map<Long, CachedBook> loadAll(Set<? extends Long> ids) {
+        Map<Long, CachedBook> result = new HashMap<>();
+        if (writeBehind == null) {
+            loader.loadAll(ids).forEach((id, book) -> result.put(id, CachedBook.from(book)));
+            return result;
+        }
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            Book pendingBook = writeBehind.getPending(id);
+            if (pendingBook != null) {
+                result.put(id, CachedBook.from(pendingBook));
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            loader.loadAll(missing).forEach((id, book) -> result.put(id, CachedBook.from(book)));
+        }
+        return result;
+    }
+
+    // Загрузчик для автозагружающего кэша.
+    // Переопределяем loadAll, иначе Caffeine при getAll вызывал бы load для каждого id по отдельности
+    private class BookLoader implements CacheLoader<Long, CachedBook> {
+
+        @Override
+        public CachedBook load(Long id) {
+            return BookService.this.load(id);
+        }
+
+        @Override
+        public Map<Long, CachedBook> loadAll(Set<? extends Long> ids) {
+            return BookService.this.loadAll(ids);
+        }
     }
 }
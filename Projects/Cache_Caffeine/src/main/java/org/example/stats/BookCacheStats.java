@@ -0,0 +1,38 @@
+package org.example.stats;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.example.load.LatencyHistogram;
+
+// Снимок статистики одного кэша BookService. Время загрузки - в наносекундах
+public record BookCacheStats(String cacheName,
+                             long hitCount,
+                             long missCount,
+                             long evictionCount,
+                             long loadCount,
+                             long loadFailureCount,
+                             double averageLoadNanos,
+                             long loadP50Nanos,
+                             long loadP99Nanos,
+                             long loadP999Nanos,
+                             long weightedSize) {
+
+    public static BookCacheStats of(String cacheName, CacheStats stats, LatencyHistogram loadLatency, long weightedSize) {
+        return new BookCacheStats(
+                cacheName,
+                stats.hitCount(),
+                stats.missCount(),
+                stats.evictionCount(),
+                stats.loadCount(),
+                stats.loadFailureCount(),
+                stats.averageLoadPenalty(),
+                loadLatency.getValueAtPercentile(50),
+                loadLatency.getValueAtPercentile(99),
+                loadLatency.getValueAtPercentile(99.9),
+                weightedSize);
+    }
+
+    public double hitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+}
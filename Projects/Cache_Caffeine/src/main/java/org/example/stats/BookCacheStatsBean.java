@@ -0,0 +1,107 @@
+package org.example.stats;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.function.LongSupplier;
+
+// Реализация MXBean: каждый атрибут читает только свой счетчик, без полного снимка статистики.
+// Консоль мониторинга опрашивает атрибуты по одному, и снимок со всеми счетчиками и перцентилями
+// на каждый атрибут был бы лишней работой. Вес кэша берется без cleanUp: мониторинг не должен
+// запускать обслуживание кэша, значение может немного отставать от последних записей
+public class BookCacheStatsBean implements BookCacheStatsMXBean {
+
+    private final BookStatsCounter counter;
+
+    private final LongSupplier weightedSize;
+
+    public BookCacheStatsBean(BookStatsCounter counter, LongSupplier weightedSize) {
+        this.counter = counter;
+        this.weightedSize = weightedSize;
+    }
+
+    // Регистрирует бин в платформенном MBeanServer и возвращает его имя (нужно для unregister)
+    public static ObjectName register(String serviceName, String cacheName, BookStatsCounter counter,
+                                      LongSupplier weightedSize) {
+        try {
+            ObjectName name = new ObjectName("org.example:type=BookCache,service="
+                    + ObjectName.quote(serviceName) + ",name=" + ObjectName.quote(cacheName));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new BookCacheStatsBean(counter, weightedSize), name);
+            return name;
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalStateException("JMX name is already used by another BookService: " + serviceName, e);
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register cache statistics in JMX", e);
+        }
+    }
+
+    public static void unregister(ObjectName name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to unregister " + name, e);
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return counter.hitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return counter.missCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hits = counter.hitCount();
+        long requests = hits + counter.missCount();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return counter.evictionCount();
+    }
+
+    @Override
+    public long getLoadCount() {
+        return counter.loadCount();
+    }
+
+    @Override
+    public long getLoadFailureCount() {
+        return counter.loadFailureCount();
+    }
+
+    @Override
+    public double getAverageLoadMillis() {
+        return counter.averageLoadNanos() / 1e6;
+    }
+
+    @Override
+    public double getLoadP50Millis() {
+        return counter.getLoadLatency().getValueAtPercentile(50) / 1e6;
+    }
+
+    @Override
+    public double getLoadP99Millis() {
+        return counter.getLoadLatency().getValueAtPercentile(99) / 1e6;
+    }
+
+    @Override
+    public double getLoadP999Millis() {
+        return counter.getLoadLatency().getValueAtPercentile(99.9) / 1e6;
+    }
+
+    @Override
+    public long getWeightedSize() {
+        return weightedSize.getAsLong();
+    }
+}
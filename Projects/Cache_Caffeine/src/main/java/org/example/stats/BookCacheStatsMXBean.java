@@ -0,0 +1,27 @@
+package org.example.stats;
+
+// Статистика одного кэша BookService в JMX (jconsole, VisualVM): org.example:type=BookCache,service=...,name=...
+public interface BookCacheStatsMXBean {
+
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRate();
+
+    long getEvictionCount();
+
+    long getLoadCount();
+
+    long getLoadFailureCount();
+
+    double getAverageLoadMillis();
+
+    double getLoadP50Millis();
+
+    double getLoadP99Millis();
+
+    double getLoadP999Millis();
+
+    long getWeightedSize();
+}
@@ -0,0 +1,100 @@
+package org.example.stats;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import org.example.load.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Счетчики одного кэша для Caffeine.recordStats(): то же, что встроенный ConcurrentStatsCounter
+(попадания, промахи, загрузки, вытеснения на LongAdder), плюс гистограмма времени загрузки для перцентилей.
+На попадании - только один LongAdder.increment(), гистограмма пишется лишь при загрузке,
+поэтому накладные расходы позволяют держать статистику включенной постоянно.
+*/
+public class BookStatsCounter implements StatsCounter {
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder evictionWeight = new LongAdder();
+
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+
+    @Override
+    public void recordHits(int count) {
+        hitCount.add(count);
+    }
+
+    @Override
+    public void recordMisses(int count) {
+        missCount.add(count);
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTime) {
+        loadSuccessCount.increment();
+        totalLoadTime.add(loadTime);
+        loadLatency.record(loadTime);
+    }
+
+    @Override
+    public void recordLoadFailure(long loadTime) {
+        loadFailureCount.increment();
+        totalLoadTime.add(loadTime);
+        loadLatency.record(loadTime);
+    }
+
+    @Override
+    public void recordEviction(int weight, RemovalCause cause) {
+        evictionCount.increment();
+        evictionWeight.add(weight);
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        return CacheStats.of(
+                hitCount.sum(),
+                missCount.sum(),
+                loadSuccessCount.sum(),
+                loadFailureCount.sum(),
+                totalLoadTime.sum(),
+                evictionCount.sum(),
+                evictionWeight.sum());
+    }
+
+    // Отдельные счетчики без сборки полного снимка - для атрибутов JMX, каждый читает один LongAdder
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    public long loadCount() {
+        return loadSuccessCount.sum() + loadFailureCount.sum();
+    }
+
+    public long loadFailureCount() {
+        return loadFailureCount.sum();
+    }
+
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    public double averageLoadNanos() {
+        long loads = loadCount();
+        return loads == 0 ? 0.0 : (double) totalLoadTime.sum() / loads;
+    }
+
+    // Время загрузок (успешных и неудачных) в наносекундах
+    public LatencyHistogram getLoadLatency() {
+        return loadLatency;
+    }
+}
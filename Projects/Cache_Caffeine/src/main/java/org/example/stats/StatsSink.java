@@ -0,0 +1,20 @@
+package org.example.stats;
+
+import java.util.Collection;
+
+// Получатель статистики кэшей: BookService периодически передает сюда снимки всех кэшей
+@FunctionalInterface
+public interface StatsSink {
+
+    void publish(Collection<BookCacheStats> stats);
+
+    // Простейший получатель - вывод в консоль
+    static StatsSink console() {
+        return stats -> stats.forEach(cache -> System.out.printf(
+                "%-9s hits=%d misses=%d hitRate=%.2f%% evictions=%d loads=%d p50=%.2fмс p99=%.2fмс p99.9=%.2fмс weight=%d%n",
+                cache.cacheName(), cache.hitCount(), cache.missCount(), cache.hitRate() * 100,
+                cache.evictionCount(), cache.loadCount(),
+                cache.loadP50Nanos() / 1e6, cache.loadP99Nanos() / 1e6, cache.loadP999Nanos() / 1e6,
+                cache.weightedSize()));
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.trace;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongConsumer;
+
+// Чтение трассы, записанной AccessTraceRecorder.
+// Файл отображается в память кусками по 1 ГБ и не грузится в кучу целиком
+public final class AccessTraceReader {
+
+    private static final int HEADER_SIZE = Integer.BYTES + Short.BYTES;
+    private static final long MAX_CHUNK = 1L << 30;
+
+    // Обращение из трассы: id и время в наносекундах от начала записи
+    @FunctionalInterface
+    public interface AccessConsumer {
+        void accept(long id, long nanos);
+    }
+
+    private AccessTraceReader() {
+    }
+
+    // Передает id в consumer в порядке обращений, возвращает их количество
+    public static long forEach(Path path, LongConsumer consumer) {
+        return forEachAccess(path, (id, nanos) -> consumer.accept(id));
+    }
+
+    // То же, но вместе со временем обращения - нужно для оценки TTL по трассе
+    public static long forEachAccess(Path path, AccessConsumer consumer) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // дочитываем заголовок
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE
+                    || header.getInt() != AccessTraceRecorder.MAGIC
+                    || header.getShort() != AccessTraceRecorder.VERSION) {
+                throw new IllegalStateException("Файл " + path + " не является трассой обращений");
+            }
+
+            int entrySize = AccessTraceRecorder.ENTRY_SIZE;
+            long count = 0;
+            long position = HEADER_SIZE;
+            long size = channel.size();
+            while (size - position >= entrySize) {
+                long length = Math.min(MAX_CHUNK / entrySize, (size - position) / entrySize) * entrySize;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                while (buffer.hasRemaining()) {
+                    consumer.accept(buffer.getLong(), buffer.getLong());
+                    count++;
+                }
+                position += length;
+            }
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать трассу " + path, e);
+        }
+    }
+}
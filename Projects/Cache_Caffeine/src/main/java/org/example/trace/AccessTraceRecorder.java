@@ -0,0 +1,159 @@
+package org.example.trace;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+Запись трассы обращений к кэшу: каждый запрошенный id пишется в бинарный файл
+вместе со временем обращения (наносекунды от создания рекордера) - по нему можно оценивать TTL.
+Формат: int magic, short version, дальше подряд пары long id, long время в порядке обращений.
+
+Накладные расходы на горячем пути минимальные и без блокировок:
+  record занимает номер слота в кольцевом буфере одним getAndIncrement, пишет id и время
+  и публикует слот, записав в published номер последовательности
+  один фоновый поток-писатель забирает слоты строго по порядку номеров и пишет их на диск блоками по 64 КБ
+Если писатель отстал на целое кольцо, record ждет освобождения слота (трасса не теряет обращений).
+*/
+public class AccessTraceRecorder implements AutoCloseable {
+
+    static final int MAGIC = 0x42545243; // "BTRC"
+    static final short VERSION = 2;
+
+    // Размер записи в файле: id и время
+    static final int ENTRY_SIZE = 2 * Long.BYTES;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Емкость кольца (степень двойки): столько обращений может ждать записи на диск
+    private static final int RING_SIZE = 1 << 16;
+    private static final int MASK = RING_SIZE - 1;
+
+    // Сколько писатель спит, если новых обращений нет
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final long startNanos = System.nanoTime();
+
+    private final long[] ids = new long[RING_SIZE];
+    private final long[] times = new long[RING_SIZE];
+    // Номер последовательности + 1, опубликованный в слоте (0 - слот еще не заполнялся)
+    private final AtomicLongArray published = new AtomicLongArray(RING_SIZE);
+
+    // Следующий свободный номер и номер, до которого писатель уже все забрал
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile boolean writerDone;
+    private volatile RuntimeException writeError;
+
+    public AccessTraceRecorder(Path path) {
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть файл трассы " + path, e);
+        }
+        buffer.putInt(MAGIC).putShort(VERSION);
+        this.writer = new Thread(this::writeLoop, "book-trace-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public void record(long id) {
+        if (closed) {
+            return;
+        }
+        long time = System.nanoTime() - startNanos;
+        long sequence = claimed.getAndIncrement();
+        // Слот освобождается, когда писатель забрал запись, сделанную в него кругом раньше
+        while (sequence - consumed.get() >= RING_SIZE) {
+            if (writerDone) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        int slot = (int) sequence & MASK;
+        ids[slot] = id;
+        times[slot] = time;
+        // Запись в AtomicLongArray публикует обычные записи ids/times выше для писателя
+        published.set(slot, sequence + 1);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось закрыть файл трассы", e);
+        }
+        if (writeError != null) {
+            throw writeError;
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            long next = 0;
+            while (true) {
+                // После close дописываем все, что было занято до этого момента
+                boolean closing = closed;
+                long limit = claimed.get();
+                while (next < limit) {
+                    int slot = (int) next & MASK;
+                    while (published.get(slot) != next + 1) {
+                        Thread.onSpinWait();
+                    }
+                    if (buffer.remaining() < ENTRY_SIZE) {
+                        flush();
+                    }
+                    buffer.putLong(ids[slot]).putLong(times[slot]);
+                    next++;
+                    consumed.lazySet(next);
+                }
+                if (closing) {
+                    flush();
+                    return;
+                }
+                flush();
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        } catch (RuntimeException e) {
+            writeError = e;
+        } finally {
+            writerDone = true;
+        }
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать трассу", e);
+        }
+        buffer.clear();
+    }
+}
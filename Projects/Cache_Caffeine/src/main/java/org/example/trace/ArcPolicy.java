@@ -0,0 +1,91 @@
+package org.example.trace;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/*
+ARC (Adaptive Replacement Cache, Megiddo и Modha).
+Кэш делится на T1 (видели один раз) и T2 (видели повторно), плюс "призрачные" списки B1 и B2
+с ключами, недавно вытесненными из T1 и T2. Попадание в B1/B2 сдвигает целевой размер T1 (p)
+в сторону той части, которая оказалась бы полезнее. В каждом списке порядок - от LRU к MRU.
+*/
+public class ArcPolicy implements SimulatedPolicy {
+
+    private final int capacity;
+    private final LinkedHashSet<Long> t1 = new LinkedHashSet<>();
+    private final LinkedHashSet<Long> t2 = new LinkedHashSet<>();
+    private final LinkedHashSet<Long> b1 = new LinkedHashSet<>();
+    private final LinkedHashSet<Long> b2 = new LinkedHashSet<>();
+
+    // Целевой размер T1
+    private double p;
+
+    public ArcPolicy(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean access(long key) {
+        if (t1.remove(key) || t2.remove(key)) {
+            t2.add(key);
+            return true;
+        }
+
+        if (b1.contains(key)) {
+            p = Math.min(capacity, p + Math.max((double) b2.size() / b1.size(), 1));
+            replace(false);
+            b1.remove(key);
+            t2.add(key);
+            return false;
+        }
+
+        if (b2.contains(key)) {
+            p = Math.max(0, p - Math.max((double) b1.size() / b2.size(), 1));
+            replace(true);
+            b2.remove(key);
+            t2.add(key);
+            return false;
+        }
+
+        int l1 = t1.size() + b1.size();
+        int total = l1 + t2.size() + b2.size();
+        if (l1 == capacity) {
+            if (t1.size() < capacity) {
+                removeLru(b1);
+                replace(false);
+            } else {
+                removeLru(t1);
+            }
+        } else if (total >= capacity) {
+            if (total == 2 * capacity) {
+                removeLru(b2);
+            }
+            replace(false);
+        }
+        t1.add(key);
+        return false;
+    }
+
+    // Вытесняет запись из T1 в B1 или из T2 в B2 в зависимости от целевого размера p
+    private void replace(boolean hitInB2) {
+        if (!t1.isEmpty() && (t1.size() > p || (hitInB2 && t1.size() == (int) p))) {
+            b1.add(removeLru(t1));
+        } else if (!t2.isEmpty()) {
+            b2.add(removeLru(t2));
+        } else if (!t1.isEmpty()) {
+            b1.add(removeLru(t1));
+        }
+    }
+
+    private static Long removeLru(LinkedHashSet<Long> list) {
+        Iterator<Long> iterator = list.iterator();
+        Long eldest = iterator.next();
+        iterator.remove();
+        return eldest;
+    }
+
+    @Override
+    public String name() {
+        return "ARC";
+    }
+}
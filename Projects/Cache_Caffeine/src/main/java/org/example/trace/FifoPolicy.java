@@ -0,0 +1,33 @@
+package org.example.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// FIFO: вытесняется самая давно добавленная запись, обращения порядок не меняют
+public class FifoPolicy implements SimulatedPolicy {
+
+    private final Map<Long, Boolean> entries;
+
+    public FifoPolicy(int maximumSize) {
+        this.entries = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    @Override
+    public boolean access(long key) {
+        if (entries.containsKey(key)) {
+            return true;
+        }
+        entries.put(key, Boolean.TRUE);
+        return false;
+    }
+
+    @Override
+    public String name() {
+        return "FIFO";
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// LRU: вытесняется запись, к которой дольше всего не обращались
+public class LruPolicy implements SimulatedPolicy {
+
+    private final Map<Long, Boolean> entries;
+
+    public LruPolicy(int maximumSize) {
+        // accessOrder = true: каждое обращение переносит запись в конец
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    @Override
+    public boolean access(long key) {
+        if (entries.get(key) != null) {
+            return true;
+        }
+        entries.put(key, Boolean.TRUE);
+        return false;
+    }
+
+    @Override
+    public String name() {
+        return "LRU";
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.trace;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/*
+Офлайн-симулятор политик вытеснения по записанной трассе (см. BookCacheSettings.setTracePath).
+Прогоняет трассу через W-TinyLFU (Caffeine), LRU, FIFO и ARC для нескольких размеров кэша
+и печатает hit ratio - по таблице видно, с какого размера рост попаданий прекращается.
+
+Запуск: java -cp ... org.example.trace.PolicySimulator <файл трассы> [размеры через пробел]
+Размеры по умолчанию: 25 50 100 200 400 800 1600
+*/
+public class PolicySimulator {
+
+    private static final int[] DEFAULT_SIZES = {25, 50, 100, 200, 400, 800, 1600};
+
+    private static final List<IntFunction<SimulatedPolicy>> POLICIES = List.of(
+            TinyLfuPolicy::new,
+            LruPolicy::new,
+            FifoPolicy::new,
+            ArcPolicy::new);
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Использование: PolicySimulator <файл трассы> [размеры кэша...]");
+            System.exit(1);
+        }
+        Path trace = Path.of(args[0]);
+        int[] sizes = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray()
+                : DEFAULT_SIZES;
+
+        System.out.printf("%8s", "size");
+        for (IntFunction<SimulatedPolicy> policy : POLICIES) {
+            System.out.printf(" | %10s", policy.apply(1).name());
+        }
+        System.out.println();
+
+        for (int size : sizes) {
+            System.out.printf("%8d", size);
+            for (IntFunction<SimulatedPolicy> factory : POLICIES) {
+                System.out.printf(" | %9.2f%%", hitRatio(trace, factory.apply(size)) * 100);
+            }
+            System.out.println();
+        }
+    }
+
+    // Доля попаданий политики на всей трассе
+    public static double hitRatio(Path trace, SimulatedPolicy policy) {
+        long[] hits = {0};
+        long total = AccessTraceReader.forEach(trace, key -> {
+            if (policy.access(key)) {
+                hits[0]++;
+            }
+        });
+        return total == 0 ? 0 : (double) hits[0] / total;
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.trace;
+
+// Политика вытеснения для офлайн-симуляции: только ключи, без значений
+public interface SimulatedPolicy {
+
+    // Обрабатывает обращение к ключу, возвращает true при попадании в кэш
+    boolean access(long key);
+
+    String name();
+}
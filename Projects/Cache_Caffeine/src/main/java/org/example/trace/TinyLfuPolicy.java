@@ -0,0 +1,32 @@
+package org.example.trace;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+// W-TinyLFU: настоящий Caffeine с тем же maximumSize, что и в BookService.
+// executor(Runnable::run) - обслуживание в текущем потоке, чтобы результат был воспроизводимым
+public class TinyLfuPolicy implements SimulatedPolicy {
+
+    private final Cache<Long, Boolean> cache;
+
+    public TinyLfuPolicy(int maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .executor(Runnable::run)
+                .build();
+    }
+
+    @Override
+    public boolean access(long key) {
+        if (cache.getIfPresent(key) != null) {
+            return true;
+        }
+        cache.put(key, Boolean.TRUE);
+        return false;
+    }
+
+    @Override
+    public String name() {
+        return "W-TinyLFU";
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+/*
+Запуск: mvn -Pbenchmark test-compile exec:exec
+Прогоняет BookServiceBenchmark для 1, 2, 4, ... 64 потоков (или для списка из аргументов: 1 8 64).
+Для отдельного прогона удобнее стандартный CLI JMH: java -cp ... org.openjdk.jmh.Main BookServiceBenchmark -t 8 -p distribution=ZIPFIAN
+*/
+public class BenchmarkRunner {
+
+    private static final int[] DEFAULT_THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    public static void main(String[] args) throws RunnerException {
+        int[] threadCounts = args.length == 0
+                ? DEFAULT_THREAD_COUNTS
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        for (int threads : threadCounts) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(BookServiceBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .result("target/jmh-result-" + threads + "-threads.json")
+                    .resultFormat(ResultFormatType.JSON);
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.benchmark;
+
+import org.example.config.BookCacheSettings;
+import org.example.load.KeyDistribution;
+import org.example.model.Book;
+import org.example.repository.BookRepository;
+import org.example.repository.LatencyModel;
+import org.example.service.BookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/*
+Сравнение трех вариантов кэша BookService.
+Параметры:
+  cacheType - какой метод сервиса вызываем (FRONT_TIER - getBook(long) через LongBookCache)
+  workingSetRatio - размер множества id относительно maximumSize(100): 0.5 - все помещается, 10 - в кэше лишь 10%
+  distribution - распределение ключей (равномерное, Zipf, последовательный проход)
+  missLatencyMicros - цена промаха (фиксированная задержка репозитория), 0 - без задержки
+Количество потоков задается снаружи (см. BenchmarkRunner), т.к. в JMH это не @Param.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookServiceBenchmark {
+
+    // Размер кэшей в BookService
+    private static final int MAXIMUM_SIZE = 100;
+
+    // Количество заранее сгенерированных ключей на поток (степень двойки для быстрого взятия по маске)
+    private static final int KEYS_PER_THREAD = 1 << 16;
+
+    // FRONT_TIER - getBook(long) с примитивным кэшем LongBookCache перед автозагружающим
+    public enum CacheType { SIMPLE, EXPIRING, LOADING, FRONT_TIER }
+
+    @Param({"SIMPLE", "EXPIRING", "LOADING", "FRONT_TIER"})
+    public CacheType cacheType;
+
+    @Param({"0.5", "1", "2", "10"})
+    public double workingSetRatio;
+
+    @Param({"UNIFORM", "ZIPFIAN", "SCAN"})
+    public KeyDistribution distribution;
+
+    @Param({"0"})
+    public long missLatencyMicros;
+
+    BookService bookService;
+    int keySpace;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keySpace = Math.max(1, (int) (MAXIMUM_SIZE * workingSetRatio));
+        BookCacheSettings settings = new BookCacheSettings();
+        if (cacheType == CacheType.FRONT_TIER) {
+            settings.setFrontTierCapacity(MAXIMUM_SIZE);
+        }
+        LatencyModel latency = missLatencyMicros > 0
+                ? LatencyModel.fixed(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(missLatencyMicros)))
+                : LatencyModel.none();
+        BookRepository bookRepository = new BookRepository(latency, Integer.MAX_VALUE);
+        List<Book> books = new ArrayList<>(keySpace);
+        for (long id = 1; id <= keySpace; id++) {
+            books.add(new Book(id, "Книга " + id, "Автор " + (id % 1000), BigDecimal.valueOf(id % 10_000, 2)));
+        }
+        bookRepository.saveAll(books);
+        bookService = new BookService(bookRepository, settings);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bookService.close();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadKeys {
+
+        Long[] keys;
+        int index;
+
+        @Setup(Level.Trial)
+        public void setUp(BookServiceBenchmark benchmark, ThreadParams threadParams) {
+            // Ключи упаковываем в Long заранее, чтобы замер не включал их генерацию
+            LongSupplier generator = benchmark.distribution.newGenerator(benchmark.keySpace, threadParams.getThreadIndex());
+            keys = new Long[KEYS_PER_THREAD];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = generator.getAsLong();
+            }
+        }
+
+        Long next() {
+            return keys[index++ & (KEYS_PER_THREAD - 1)];
+        }
+    }
+
+    @Benchmark
+    public Book getBook(ThreadKeys threadKeys) {
+        Long id = threadKeys.next();
+        return switch (cacheType) {
+            case SIMPLE -> bookService.getBookWithSimpleCache(id);
+            case EXPIRING -> bookService.getBookWithExpiringCache(id);
+            case LOADING -> bookService.getBookWithLoadingCache(id);
+            case FRONT_TIER -> bookService.getBook(id);
+        };
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.benchmark;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.example.cache.LongBookCache;
+import org.example.model.Book;
+import org.example.model.CachedBook;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/*
+Отчет о расходе памяти на одну запись.
+1. Структура кэша: Caffeine Cache<Long, CachedBook> против LongBookCache.
+   Сами книги создаются заранее и общие для обоих вариантов, поэтому в отчет попадает только
+   накладной расход структуры: у Caffeine - узел, упакованный ключ Long, слот таблицы и счетчики частоты,
+   у LongBookCache - слот в массиве long[] и слот в массиве ссылок.
+2. Форма значения на 1M книг: Caffeine с Book против Caffeine с CachedBook.
+   Книги создаются так, как их отдал бы репозиторий: у каждой свои строки и свой BigDecimal,
+   авторов 10 тысяч. Считается все: структура кэша, ключи и сами книги.
+
+Запуск (для 10M записей нужна куча побольше):
+  mvn -Pbenchmark test-compile exec:exec -Dbenchmark.mainClass=org.example.benchmark.FootprintReport
+Аргументы - количества записей, по умолчанию 100000 и 10000000.
+Замер через used heap после System.gc() приблизительный, но на таких объемах погрешность мала.
+*/
+public class FootprintReport {
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    // Сколько книг в сравнении форм значения (Book против CachedBook)
+    private static final int BOOK_FORM_ENTRIES = 1_000_000;
+
+    public static void main(String[] args) {
+        long[] entryCounts = args.length == 0
+                ? new long[]{100_000, 10_000_000}
+                : Arrays.stream(args).mapToLong(Long::parseLong).toArray();
+
+        System.out.printf("%12s | %22s | %22s%n", "entries", "Caffeine, bytes/entry", "LongBookCache, bytes/entry");
+        for (long count : entryCounts) {
+            int entries = Math.toIntExact(count);
+            CachedBook[] books = createBooks(entries);
+            double caffeine = measureCaffeine(books);
+            double longCache = measureLongBookCache(books);
+            System.out.printf("%12d | %22.1f | %22.1f%n", entries, caffeine, longCache);
+        }
+
+        System.out.println();
+        System.out.printf("%12s | %22s | %22s%n", "entries", "Book, bytes/entry", "CachedBook, bytes/entry");
+        // Первый замер после первой таблицы получается заниженным (куча еще не пришла в равновесие), его отбрасываем
+        measureBookForm(BOOK_FORM_ENTRIES, CachedBook::from);
+        double mutable = measureBookForm(BOOK_FORM_ENTRIES, book -> book);
+        double compact = measureBookForm(BOOK_FORM_ENTRIES, CachedBook::from);
+        System.out.printf("%12d | %22.1f | %22.1f%n", BOOK_FORM_ENTRIES, mutable, compact);
+    }
+
+    private static CachedBook[] createBooks(int entries) {
+        // Строки общие: нас интересует расход структуры кэша, а не самих книг
+        CachedBook[] books = new CachedBook[entries];
+        for (int i = 0; i < entries; i++) {
+            books[i] = new CachedBook((long) i + 1, "Война и Мир", "Лев Толстой", 2999, 2);
+        }
+        return books;
+    }
+
+    private static double measureBookForm(int entries, Function<Book, Object> form) {
+        long before = usedHeap();
+        Cache<Long, Object> cache = Caffeine.newBuilder()
+                .maximumSize(entries)
+                .executor(Runnable::run)
+                .build();
+        for (int i = 0; i < entries; i++) {
+            // new String и new BigDecimal - как после чтения из базы: у каждой книги свои объекты
+            Book book = new Book((long) i + 1,
+                    new String("Книга номер " + i),
+                    new String("Автор номер " + i % 10_000),
+                    BigDecimal.valueOf(1000 + i % 5000, 2));
+            cache.put(book.getId(), form.apply(book));
+        }
+        cache.cleanUp();
+        long after = usedHeap();
+        Reference.reachabilityFence(cache);
+        return (double) (after - before) / entries;
+    }
+
+    private static double measureCaffeine(CachedBook[] books) {
+        long before = usedHeap();
+        // executor(Runnable::run) - обслуживание кэша в текущем потоке, чтобы к замеру все было применено
+        Cache<Long, CachedBook> cache = Caffeine.newBuilder()
+                .maximumSize(books.length)
+                .executor(Runnable::run)
+                .build();
+        for (CachedBook book : books) {
+            cache.put(book.id(), book);
+        }
+        cache.cleanUp();
+        long after = usedHeap();
+        Reference.reachabilityFence(cache);
+        return (double) (after - before) / books.length;
+    }
+
+    private static double measureLongBookCache(CachedBook[] books) {
+        long before = usedHeap();
+        // Емкость с запасом x2, чтобы окна пробирования не переполнялись
+        LongBookCache cache = new LongBookCache(books.length * 2);
+        for (CachedBook book : books) {
+            cache.put(book.id(), book);
+        }
+        long after = usedHeap();
+        Reference.reachabilityFence(cache);
+        return (double) (after - before) / books.length;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
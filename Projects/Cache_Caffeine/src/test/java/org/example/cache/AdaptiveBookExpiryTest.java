@@ -0,0 +1,79 @@
+package org.example.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveBookExpiryTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private AdaptiveBookExpiry expiry;
+
+    @BeforeEach
+    void setUp() {
+        expiry = new AdaptiveBookExpiry(Duration.ofSeconds(10), Duration.ofHours(1), 100);
+    }
+
+    @Test
+    void testUnknownBookGetsMaximumTtl() {
+        // Act & Assert
+        assertEquals(TimeUnit.HOURS.toNanos(1), expiry.ttlNanos(1L, 0));
+        // Одно изменение еще не дает интервала
+        expiry.recordChange(1L, 0);
+        assertEquals(TimeUnit.HOURS.toNanos(1), expiry.ttlNanos(1L, 0));
+    }
+
+    @Test
+    void testFrequentlyChangingBookGetsShortTtl() {
+        // Arrange: цена меняется каждые 2 минуты
+        for (int i = 0; i <= 5; i++) {
+            expiry.recordChange(1L, i * 2 * MINUTE);
+        }
+
+        // Act & Assert: половина интервала
+        assertEquals(MINUTE, expiry.ttlNanos(1L, 10 * MINUTE));
+    }
+
+    @Test
+    void testTtlIsClampedToMinimum() {
+        // Arrange: изменения каждую секунду
+        for (int i = 0; i <= 5; i++) {
+            expiry.recordChange(1L, i * SECOND);
+        }
+
+        // Act & Assert
+        assertEquals(10 * SECOND, expiry.ttlNanos(1L, 5 * SECOND));
+    }
+
+    @Test
+    void testQuietBookReturnsToLongTtl() {
+        // Arrange: раньше книга менялась каждые 2 минуты
+        for (int i = 0; i <= 5; i++) {
+            expiry.recordChange(1L, i * 2 * MINUTE);
+        }
+
+        // Act: прошло 40 минут без изменений
+        long ttl = expiry.ttlNanos(1L, 50 * MINUTE);
+
+        // Assert
+        assertEquals(20 * MINUTE, ttl);
+    }
+
+    @Test
+    void testReadKeepsCurrentDuration() {
+        // Act & Assert
+        assertEquals(123, expiry.expireAfterRead(1L, null, 0, 123));
+    }
+
+    @Test
+    void testInvalidBounds() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveBookExpiry(Duration.ofHours(2), Duration.ofHours(1), 100));
+    }
+}
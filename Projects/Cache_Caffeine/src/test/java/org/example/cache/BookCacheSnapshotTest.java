@@ -0,0 +1,81 @@
+package org.example.cache;
+
+import org.example.model.Book;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.example.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookCacheSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testWriteAndRead() {
+        // Arrange
+        Path path = tempDir.resolve("books.snapshot");
+        List<Book> books = List.of(
+                new Book(BOOK_ID, BOOK_TITLE, BOOK_AUTHOR, BOOK_PRICE),
+                new Book(2L, "Преступление и наказание", null, new BigDecimal("1234567890123456789.5")),
+                new Book(3L, null, "Михаил Булгаков", null));
+
+        // Act
+        BookCacheSnapshot.write(path, books);
+        List<Book> restored = BookCacheSnapshot.read(path);
+
+        // Assert
+        assertEquals(books.size(), restored.size());
+        for (int i = 0; i < books.size(); i++) {
+            assertEquals(books.get(i).toString(), restored.get(i).toString());
+        }
+    }
+
+    @Test
+    void testReadRejectsTruncatedFile() throws IOException {
+        // Arrange: полный снимок, обрезанный на середине второй записи
+        Path path = tempDir.resolve("books.snapshot");
+        BookCacheSnapshot.write(path, List.of(
+                new Book(BOOK_ID, BOOK_TITLE, BOOK_AUTHOR, BOOK_PRICE),
+                new Book(2L, "Преступление и наказание", "Федор Достоевский", BOOK_PRICE)));
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 20));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> BookCacheSnapshot.read(path));
+    }
+
+    @Test
+    void testReadRejectsImpossibleLengths() throws IOException {
+        // Arrange: корректный заголовок, но огромное число записей и огромная длина строки
+        Path hugeCount = tempDir.resolve("count.snapshot");
+        Files.write(hugeCount, ByteBuffer.allocate(10).putInt(0x424B534E).putShort((short) 1).putInt(Integer.MAX_VALUE).array());
+        Path hugeLength = tempDir.resolve("length.snapshot");
+        Files.write(hugeLength, ByteBuffer.allocate(40)
+                .putInt(0x424B534E).putShort((short) 1).putInt(1)
+                .putLong(BOOK_ID).putInt(Integer.MAX_VALUE).array());
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> BookCacheSnapshot.read(hugeCount));
+        assertThrows(IllegalStateException.class, () -> BookCacheSnapshot.read(hugeLength));
+    }
+
+    @Test
+    void testReadRejectsForeignFile() throws IOException {
+        // Arrange
+        Path path = tempDir.resolve("garbage.snapshot");
+        Files.writeString(path, "это не снимок кэша");
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> BookCacheSnapshot.read(path));
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.cache;
+
+import org.example.model.CachedBook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.example.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookWeigherTest {
+
+    private BookWeigher weigher;
+
+    @BeforeEach
+    void setUp() {
+        weigher = new BookWeigher();
+    }
+
+    @Test
+    void testWeightGrowsWithTitleLength() {
+        // Arrange
+        CachedBook shortTitle = new CachedBook(BOOK_ID, "Нос", BOOK_AUTHOR, 2999, 2);
+        CachedBook longTitle = new CachedBook(BOOK_ID, "Жизнь и удивительные приключения Робинзона Крузо", BOOK_AUTHOR, 2999, 2);
+
+        // Act & Assert
+        assertTrue(weigher.weigh(BOOK_ID, longTitle) > weigher.weigh(BOOK_ID, shortTitle));
+    }
+
+    @Test
+    void testCyrillicStringsTakeTwoBytesPerChar() {
+        // Act
+        long latin = BookWeigher.stringSize("abcdefghijklmnop");
+        long cyrillic = BookWeigher.stringSize("абвгдежзийклмноп");
+
+        // Assert: 24 байта String + массив 16 + 16 или 16 + 32
+        assertEquals(56, latin);
+        assertEquals(72, cyrillic);
+    }
+
+    @Test
+    void testExactWeight() {
+        // Arrange
+        CachedBook book = new CachedBook(BOOK_ID, "Нос", BOOK_AUTHOR, 2999, 2);
+
+        // Act & Assert: узел Caffeine 88 + Long 24 + CachedBook 40 + String 24 + массив 16 + 6 (выравнивание до 24)
+        assertEquals(BookWeigher.ENTRY_OVERHEAD + 112, weigher.weigh(BOOK_ID, book));
+        assertEquals(200, weigher.weigh(BOOK_ID, book));
+    }
+
+    @Test
+    void testSharedAuthorAndPriceDoNotAddWeight() {
+        // Arrange
+        CachedBook cheap = new CachedBook(BOOK_ID, BOOK_TITLE, "А", 1, 0);
+        CachedBook expensive = new CachedBook(BOOK_ID, BOOK_TITLE, "Очень длинное имя автора", Long.MAX_VALUE, 2);
+
+        // Act & Assert
+        assertEquals(weigher.weigh(BOOK_ID, cheap), weigher.weigh(BOOK_ID, expensive));
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.cache;
+
+import org.example.model.Book;
+import org.example.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.example.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescingBookLoaderTest {
+
+    private CoalescingBookLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        loader = new CoalescingBookLoader(new BookRepository());
+    }
+
+    @Test
+    void testLoad() {
+        // Act
+        Book book = loader.load(BOOK_ID);
+
+        // Assert
+        assertEquals(BOOK_TITLE, book.getTitle());
+        assertNull(loader.load(NON_EXISTENT_BOOK_ID));
+        assertEquals(2, loader.getLoadCount());
+        assertEquals(0, loader.getDeduplicatedCount());
+    }
+
+    @Test
+    void testConcurrentLoadsAreCoalesced() throws Exception {
+        // Arrange
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Book>> results = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < threads; i++) {
+            results.add(CompletableFuture.supplyAsync(() -> {
+                awaitQuietly(start);
+                return loader.load(BOOK_ID);
+            }, executor));
+        }
+        start.countDown();
+        for (CompletableFuture<Book> result : results) {
+            assertEquals(BOOK_TITLE, result.get().getTitle());
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(1, loader.getLoadCount());
+        assertEquals(threads - 1, loader.getDeduplicatedCount());
+    }
+
+    @Test
+    void testErrorInLoadReleasesWaitingThreads() throws Exception {
+        // Arrange: репозиторий падает с Error, пока второй поток ждет ту же загрузку
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CoalescingBookLoader failingLoader = new CoalescingBookLoader(new BookRepository() {
+            @Override
+            public Book findByid(Long id) {
+                entered.countDown();
+                awaitQuietly(release);
+                throw new StackOverflowError("имитация");
+            }
+        });
+        CompletableFuture<Book> owner = CompletableFuture.supplyAsync(() -> failingLoader.load(BOOK_ID));
+        entered.await();
+        CompletableFuture<Book> joiner = CompletableFuture.supplyAsync(() -> failingLoader.load(BOOK_ID));
+        while (failingLoader.getDeduplicatedCount() == 0) {
+            Thread.sleep(1);
+        }
+
+        // Act
+        release.countDown();
+
+        // Assert: оба потока получают ту же ошибку, а не зависают
+        ExecutionException ownerError = assertThrows(ExecutionException.class, () -> owner.get(5, TimeUnit.SECONDS));
+        ExecutionException joinerError = assertThrows(ExecutionException.class, () -> joiner.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(StackOverflowError.class, ownerError.getCause());
+        assertInstanceOf(StackOverflowError.class, joinerError.getCause());
+    }
+
+    @Test
+    void testLoadAllJoinsLoadInFlight() throws Exception {
+        // Arrange: одиночная загрузка id 1 уже идет
+        CompletableFuture<Book> single = CompletableFuture.supplyAsync(() -> loader.load(BOOK_ID));
+        Thread.sleep(200);
+
+        // Act
+        Map<Long, Book> books = loader.loadAll(List.of(BOOK_ID, 2L, NON_EXISTENT_BOOK_ID));
+
+        // Assert
+        assertEquals(2, books.size());
+        assertSame(single.get(), books.get(BOOK_ID));
+        assertEquals(3, loader.getLoadCount());
+        assertEquals(1, loader.getDeduplicatedCount());
+    }
+
+    @Test
+    void testExistenceCheckSkipsRepositoryForMissingIds() {
+        // Arrange
+        CoalescingBookLoader checkedLoader = new CoalescingBookLoader(new BookRepository(), true);
+
+        // Act
+        long startTime = System.currentTimeMillis();
+        Book missing = checkedLoader.load(NON_EXISTENT_BOOK_ID);
+        long missTime = System.currentTimeMillis() - startTime;
+        Map<Long, Book> books = checkedLoader.loadAll(List.of(BOOK_ID, NON_EXISTENT_BOOK_ID));
+
+        // Assert
+        assertNull(missing);
+        assertTrue(missTime < 500, "Промах по несуществующему id не должен ждать репозиторий: " + missTime + " мс");
+        assertEquals(1, books.size());
+        assertEquals(1, checkedLoader.getLoadCount());
+        assertEquals(2, checkedLoader.getRejectedCount());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
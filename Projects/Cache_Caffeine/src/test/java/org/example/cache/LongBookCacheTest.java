@@ -0,0 +1,81 @@
+package org.example.cache;
+
+import org.example.model.CachedBook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.example.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongBookCacheTest {
+
+    private LongBookCache cache;
+    private CachedBook book;
+
+    @BeforeEach
+    void setUp() {
+        cache = new LongBookCache(16);
+        book = new CachedBook(BOOK_ID, BOOK_TITLE, BOOK_AUTHOR, 2999, 2);
+    }
+
+    @Test
+    void testPutAndGet() {
+        // Act
+        cache.put(BOOK_ID, book);
+
+        // Assert
+        assertSame(book, cache.get(BOOK_ID));
+        assertNull(cache.get(NON_EXISTENT_BOOK_ID));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testPutReplacesExistingEntry() {
+        // Arrange
+        CachedBook updated = new CachedBook(BOOK_ID, "Анна Каренина", BOOK_AUTHOR, 2499, 2);
+        cache.put(BOOK_ID, book);
+
+        // Act
+        cache.put(BOOK_ID, updated);
+
+        // Assert
+        assertSame(updated, cache.get(BOOK_ID));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testInvalidate() {
+        // Arrange
+        cache.put(BOOK_ID, book);
+
+        // Act
+        cache.invalidate(BOOK_ID);
+
+        // Assert
+        assertNull(cache.get(BOOK_ID));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testCapacityIsBoundedWhenFull() {
+        // Act
+        for (long id = 1; id <= 1000; id++) {
+            cache.put(id, new CachedBook(id, BOOK_TITLE, BOOK_AUTHOR, 2999, 2));
+        }
+
+        // Assert
+        assertEquals(16, cache.capacity());
+        assertTrue(cache.size() <= cache.capacity());
+        // Последняя записанная книга всегда доступна
+        assertEquals(1000L, cache.get(1000L).id());
+    }
+
+    @Test
+    void testGetNeverReturnsForeignBook() {
+        // Arrange: книга с id, отличным от ключа (как при гонке записей в один слот)
+        cache.put(BOOK_ID, new CachedBook(2L, BOOK_TITLE, BOOK_AUTHOR, 2999, 2));
+
+        // Act & Assert
+        assertNull(cache.get(BOOK_ID));
+    }
+}
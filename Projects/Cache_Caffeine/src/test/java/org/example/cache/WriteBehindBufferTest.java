@@ -0,0 +1,138 @@
+package org.example.cache;
+
+import org.example.model.Book;
+import org.example.repository.BookRepository;
+import org.example.repository.LatencyModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.example.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindBufferTest {
+
+    private BookRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new BookRepository(LatencyModel.none(), Integer.MAX_VALUE);
+    }
+
+    @Test
+    void testUpdatesOfSameIdAreCoalesced() {
+        // Arrange
+        try (WriteBehindBuffer buffer = new WriteBehindBuffer(repository, Duration.ofMinutes(1), 1000)) {
+
+            // Act
+            for (int i = 1; i <= 1000; i++) {
+                buffer.enqueue(new Book(BOOK_ID, BOOK_TITLE, BOOK_AUTHOR, BigDecimal.valueOf(i)));
+            }
+
+            // Assert: до сброса репозиторий не изменился, в буфере одна версия
+            assertEquals(BOOK_PRICE, repository.findByid(BOOK_ID).getPrice());
+            assertEquals(1, buffer.getPendingCount());
+            assertEquals(999, buffer.getCoalescedCount());
+            assertEquals(BigDecimal.valueOf(1000), buffer.getPending(BOOK_ID).getPrice());
+
+            assertEquals(1, buffer.flush());
+            assertEquals(BigDecimal.valueOf(1000), repository.findByid(BOOK_ID).getPrice());
+            assertEquals(0, buffer.getPendingCount());
+            assertNull(buffer.getPending(BOOK_ID));
+        }
+    }
+
+    @Test
+    void testFlushOnTimer() throws InterruptedException {
+        // Arrange
+        try (WriteBehindBuffer buffer = new WriteBehindBuffer(repository, Duration.ofMillis(20), 1000)) {
+
+            // Act
+            buffer.enqueue(new Book(2L, "Новое название", "Федор Достоевский", new BigDecimal("1.00")));
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (buffer.getFlushedCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            // Assert
+            assertEquals(1, buffer.getFlushedCount());
+            assertEquals("Новое название", repository.findByid(2L).getTitle());
+        }
+    }
+
+    @Test
+    void testFlushOnBatchSize() throws InterruptedException {
+        // Arrange
+        try (WriteBehindBuffer buffer = new WriteBehindBuffer(repository, Duration.ofMinutes(1), 3)) {
+
+            // Act
+            for (long id = 10; id < 13; id++) {
+                buffer.enqueue(new Book(id, "Книга " + id, "Автор", BigDecimal.TEN));
+            }
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (buffer.getFlushedCount() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            // Assert
+            assertEquals(3, buffer.getFlushedCount());
+            assertNotNull(repository.findByid(12L));
+        }
+    }
+
+    @Test
+    void testCloseFlushesPendingWrites() {
+        // Arrange
+        WriteBehindBuffer buffer = new WriteBehindBuffer(repository, Duration.ofMinutes(1), 1000);
+        buffer.enqueue(new Book(3L, "Мастер и Маргарита", "Михаил Булгаков", new BigDecimal("9.99")));
+
+        // Act
+        buffer.close();
+
+        // Assert
+        assertEquals(new BigDecimal("9.99"), repository.findByid(3L).getPrice());
+        assertThrows(IllegalStateException.class,
+                () -> buffer.enqueue(new Book(3L, "Мастер и Маргарита", "Михаил Булгаков", BigDecimal.ONE)));
+    }
+
+    @Test
+    void testEnqueueRacingWithCloseIsNeverLost() throws InterruptedException {
+        // Arrange: потоки пишут, пока буфер не закроется
+        WriteBehindBuffer buffer = new WriteBehindBuffer(repository, Duration.ofMinutes(1), Integer.MAX_VALUE);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch started = new CountDownLatch(4);
+        AtomicLong accepted = new AtomicLong();
+        for (int t = 0; t < 4; t++) {
+            long base = 100 + t * 1_000_000L;
+            executor.execute(() -> {
+                started.countDown();
+                for (long id = base; ; id++) {
+                    try {
+                        buffer.enqueue(new Book(id, "Книга " + id, "Автор", BigDecimal.ONE));
+                    } catch (IllegalStateException closed) {
+                        return;
+                    }
+                    accepted.incrementAndGet();
+                }
+            });
+        }
+        started.await();
+        Thread.sleep(20);
+
+        // Act
+        buffer.close();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Assert: каждое принятое обновление записано, в буфере ничего не осталось
+        assertEquals(0, buffer.getPendingCount());
+        assertEquals(accepted.get(), buffer.getFlushedCount());
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.load;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testPercentilesWithinPrecision() {
+        // Arrange: значения 1..100000 мкс равномерно
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 100_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+
+        // Act & Assert: относительная погрешность не больше 1/32
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(50_000_000, histogram.getValueAtPercentile(50), 50_000_000 / 32.0);
+        assertEquals(99_000_000, histogram.getValueAtPercentile(99), 99_000_000 / 32.0);
+        assertEquals(99_900_000, histogram.getValueAtPercentile(99.9), 99_900_000 / 32.0);
+        assertEquals(100_000_000, histogram.getMaxNanos());
+        assertEquals(50_000_500, histogram.getMeanNanos(), 1);
+    }
+
+    @Test
+    void testSmallValuesAreExact() {
+        // Arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(7);
+
+        // Act & Assert
+        assertEquals(3, histogram.getValueAtPercentile(50));
+        assertEquals(7, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void testBucketBoundsCoverWholeRange() {
+        // Act & Assert: каждое значение попадает в корзину, верхняя граница которой не меньше его самого
+        for (long value : new long[]{0, 63, 64, 65, 1_000, 1L << 40, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.highestValueOf(index) >= value, "value " + value);
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void testAddAndReset() {
+        // Arrange
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(1_000);
+        second.record(2_000_000);
+
+        // Act
+        first.add(second);
+
+        // Assert
+        assertEquals(2, first.getCount());
+        assertEquals(2_000_000, first.getMaxNanos());
+        first.reset();
+        assertEquals(0, first.getCount());
+        assertEquals(0, first.getValueAtPercentile(99));
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.load;
+
+import org.example.model.Book;
+import org.example.repository.BookRepository;
+import org.example.repository.LatencyModel;
+import org.example.service.BookService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadGeneratorTest {
+
+    @Test
+    void testRequestCountRun() throws InterruptedException {
+        // Arrange
+        BookRepository repository = new BookRepository(LatencyModel.none(), Integer.MAX_VALUE);
+        List<Book> books = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            books.add(new Book(id, "Книга " + id, "Автор", BigDecimal.ONE));
+        }
+        repository.saveAll(books);
+        LoadSettings settings = new LoadSettings();
+        settings.setThreads(4);
+        settings.setRequestCount(10_000);
+        settings.setKeySpace(50);
+        settings.setInvalidateRatio(0.1);
+
+        // Act
+        LoadReport report;
+        try (BookService bookService = new BookService(repository)) {
+            report = new LoadGenerator(bookService, settings).run();
+        }
+
+        // Assert: 50 книг помещаются в кэш, поэтому промахи - только первые загрузки и чтения после инвалидации
+        assertEquals(10_000, report.reads() + report.invalidations());
+        assertEquals(report.reads(), report.readLatency().getCount());
+        assertTrue(report.invalidations() > 500 && report.invalidations() < 1500, "invalidations " + report.invalidations());
+        assertTrue(report.hitRatio() > 0.5, "hit ratio " + report.hitRatio());
+        assertTrue(report.throughput() > 0);
+        assertTrue(report.toString().contains("p99.9"));
+    }
+}
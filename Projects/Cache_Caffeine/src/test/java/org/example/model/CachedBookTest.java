@@ -0,0 +1,73 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.example.TestConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedBookTest {
+
+    @Test
+    void testRoundTrip() {
+        // Arrange
+        Book book = new Book(BOOK_ID, BOOK_TITLE, BOOK_AUTHOR, BOOK_PRICE);
+
+        // Act
+        CachedBook cached = CachedBook.from(book);
+
+        // Assert
+        assertEquals(BOOK_ID, cached.id());
+        assertEquals(2999, cached.priceUnits());
+        assertEquals(2, cached.priceScale());
+        assertEquals(book, cached.toBook());
+        assertNotSame(cached.toBook(), cached.toBook());
+    }
+
+    @Test
+    void testPriceScaleIsPreserved() {
+        // Act
+        CachedBook whole = CachedBook.from(new Book(BOOK_ID, BOOK_TITLE, BOOK_AUTHOR, new BigDecimal("30")));
+        CachedBook precise = CachedBook.from(new Book(BOOK_ID, BOOK_TITLE, BOOK_AUTHOR, new BigDecimal("29.9900")));
+
+        // Assert
+        assertEquals(new BigDecimal("30"), whole.price());
+        assertEquals(new BigDecimal("29.9900"), precise.price());
+    }
+
+    @Test
+    void testNullPriceAndNullBook() {
+        // Act
+        CachedBook cached = CachedBook.from(new Book(BOOK_ID, BOOK_TITLE, BOOK_AUTHOR, null));
+
+        // Assert
+        assertNull(cached.price());
+        assertNull(cached.toBook().getPrice());
+        assertNull(CachedBook.from(null));
+        assertNull(CachedBook.toBookOrNull(null));
+    }
+
+    @Test
+    void testAuthorIsDeduplicated() {
+        // Arrange: две разные строки с одинаковым значением, как после чтения из базы
+        String firstAuthor = new String(BOOK_AUTHOR.toCharArray());
+        String secondAuthor = new String(BOOK_AUTHOR.toCharArray());
+
+        // Act
+        CachedBook first = CachedBook.from(new Book(1L, BOOK_TITLE, firstAuthor, BOOK_PRICE));
+        CachedBook second = CachedBook.from(new Book(2L, BOOK_TITLE, secondAuthor, BOOK_PRICE));
+
+        // Assert
+        assertSame(first.author(), second.author());
+    }
+
+    @Test
+    void testPriceThatDoesNotFitIntoLongIsRejected() {
+        // Arrange
+        Book book = new Book(BOOK_ID, BOOK_TITLE, BOOK_AUTHOR, new BigDecimal("123456789012345678901234567890.99"));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> CachedBook.from(book));
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookBloomFilterTest {
+
+    @Test
+    void testNoFalseNegatives() {
+        // Arrange
+        BookBloomFilter filter = new BookBloomFilter(10_000, 0.01);
+
+        // Act
+        for (long id = 1; id <= 10_000; id++) {
+            filter.put(id);
+        }
+
+        // Assert
+        for (long id = 1; id <= 10_000; id++) {
+            assertTrue(filter.mightContain(id), "Добавленный id " + id + " должен находиться");
+        }
+    }
+
+    @Test
+    void testFalsePositiveRateIsNearConfigured() {
+        // Arrange
+        BookBloomFilter filter = new BookBloomFilter(10_000, 0.01);
+        for (long id = 1; id <= 10_000; id++) {
+            filter.put(id);
+        }
+
+        // Act
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (long id = 1_000_000; id < 1_000_000 + probes; id++) {
+            if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+
+        // Assert
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate < 0.02, "Доля ложных срабатываний слишком велика: " + rate);
+    }
+
+    @Test
+    void testSizeFollowsFalsePositiveRate() {
+        // Act
+        BookBloomFilter loose = new BookBloomFilter(100_000, 0.05);
+        BookBloomFilter strict = new BookBloomFilter(100_000, 0.001);
+
+        // Assert: около 9.6 бит на элемент при 1% и больше при более строгой точности
+        assertTrue(strict.sizeInBytes() > loose.sizeInBytes());
+        assertTrue(strict.hashCount() > loose.hashCount());
+        assertEquals(119_816, new BookBloomFilter(100_000, 0.01).sizeInBytes(), 8);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new BookBloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BookBloomFilter(100, 1.0));
+    }
+}
@@ -4,6 +4,16 @@ import org.example.model.Book;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static org.example.TestConstants.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -50,4 +60,187 @@ class BookRepositoryTest {
         // Assert
         assertTrue(endTime - startTime >= 1000, "Операция должна занимать не менее 1 секунды");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFindAllById() {
+        // Act
+        long startTime = System.currentTimeMillis();
+        Map<Long, Book> books = repository.findAllById(List.of(BOOK_ID, 2L, NON_EXISTENT_BOOK_ID));
+        long endTime = System.currentTimeMillis();
+
+        // Assert
+        assertEquals(2, books.size());
+        assertEquals(BOOK_TITLE, books.get(BOOK_ID).getTitle());
+        assertFalse(books.containsKey(NON_EXISTENT_BOOK_ID));
+        assertTrue(endTime - startTime < 2000, "Пакетный запрос должен стоить как один запрос");
+    }
+
+    @Test
+    void testSaveAndDelete() {
+        // Arrange
+        BookRepository fastRepository = new BookRepository(LatencyModel.none(), Integer.MAX_VALUE);
+        Book book = new Book(10L, "Анна Каренина", BOOK_AUTHOR, new BigDecimal("24.99"));
+
+        // Act
+        fastRepository.save(book);
+        Book saved = fastRepository.findByid(10L);
+        fastRepository.deleteById(10L);
+
+        // Assert
+        assertSame(book, saved);
+        assertNull(fastRepository.findByid(10L));
+    }
+
+    @Test
+    void testConcurrentWrites() throws Exception {
+        // Arrange
+        BookRepository fastRepository = new BookRepository(LatencyModel.none(), Integer.MAX_VALUE);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+
+        // Act: четыре потока пишут пересекающиеся диапазоны id
+        for (int writer = 0; writer < 4; writer++) {
+            writers.add(CompletableFuture.runAsync(() -> {
+                for (long id = 100; id < 1100; id++) {
+                    fastRepository.save(new Book(id, BOOK_TITLE, BOOK_AUTHOR, BOOK_PRICE));
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(writers.toArray(CompletableFuture[]::new)).get();
+        executor.shutdown();
+
+        // Assert
+        List<Long> ids = new ArrayList<>();
+        for (long id = 100; id < 1100; id++) {
+            ids.add(id);
+        }
+        assertEquals(1000, fastRepository.findAllById(ids).size());
+    }
+
+    @Test
+    void testConcurrentSavesOfSameIdKeepSearchIndexConsistent() throws Exception {
+        // Arrange
+        BookRepository fastRepository = new BookRepository(LatencyModel.none(), Integer.MAX_VALUE);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+
+        // Act: четыре потока попеременно сохраняют книгу 1 с двумя разными названиями
+        for (int writer = 0; writer < 4; writer++) {
+            String title = writer % 2 == 0 ? "Альфа" : "Бета";
+            writers.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    fastRepository.save(new Book(1L, title, BOOK_AUTHOR, BOOK_PRICE));
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(writers.toArray(CompletableFuture[]::new)).get();
+        executor.shutdown();
+
+        // Assert: индекс находит книгу ровно по названию той версии, что осталась в данных
+        String stored = fastRepository.findByid(1L).getTitle();
+        String other = stored.equals("Альфа") ? "Бета" : "Альфа";
+        assertEquals(List.of(1L), fastRepository.search(stored).stream().map(Book::getId).toList());
+        assertTrue(fastRepository.search(other).isEmpty());
+    }
+
+    @Test
+    void testConcurrencyCapQueuesQueries() throws Exception {
+        // Arrange: одно "соединение", каждый запрос 200 мс
+        BookRepository pooledRepository = new BookRepository(LatencyModel.fixed(Duration.ofMillis(200)), 1);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        // Act
+        long startTime = System.currentTimeMillis();
+        List<CompletableFuture<Book>> queries = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            queries.add(CompletableFuture.supplyAsync(() -> pooledRepository.findByid(BOOK_ID), executor));
+        }
+        for (CompletableFuture<Book> query : queries) {
+            assertNotNull(query.get());
+        }
+        long elapsed = System.currentTimeMillis() - startTime;
+        executor.shutdown();
+
+        // Assert: запросы выполнялись по очереди
+        assertTrue(elapsed >= 600, "Запросы должны ждать свободное соединение: " + elapsed + " мс");
+    }
+
+    @Test
+    void testLogNormalLatencyAroundMedian() {
+        // Arrange
+        LatencyModel model = LatencyModel.logNormal(Duration.ofMillis(10), 0.5);
+        long[] samples = new long[10_001];
+
+        // Act
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = model.sampleNanos();
+        }
+        Arrays.sort(samples);
+
+        // Assert: медиана близка к 10 мс, хвост длиннее медианы
+        long median = samples[samples.length / 2];
+        assertEquals(Duration.ofMillis(10).toNanos(), median, Duration.ofMillis(1).toNanos());
+        assertTrue(samples[samples.length * 99 / 100] > 2 * median);
+    }
+
+    @Test
+    void testExistenceIndexTracksSavedBooks() {
+        // Arrange
+        BookRepository fastRepository = new BookRepository(LatencyModel.none(), Integer.MAX_VALUE);
+
+        // Act
+        fastRepository.save(new Book(42L, "Обломов", "Иван Гончаров", new BigDecimal("15.50")));
+
+        // Assert
+        assertTrue(fastRepository.mightContain(BOOK_ID));
+        assertTrue(fastRepository.mightContain(42L));
+        assertFalse(fastRepository.mightContain(NON_EXISTENT_BOOK_ID));
+    }
+
+    @Test
+    void testResizeExistenceIndexKeepsBooksSavedConcurrently() throws Exception {
+        // Arrange
+        BookRepository fastRepository = new BookRepository(LatencyModel.none(), Integer.MAX_VALUE);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // Act: книги сохраняются, пока фильтр пересоздается с другим размером
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            for (long id = 100; id < 20_100; id++) {
+                fastRepository.save(new Book(id, BOOK_TITLE, BOOK_AUTHOR, BOOK_PRICE));
+            }
+        }, executor);
+        fastRepository.resizeExistenceIndex(1_000_000, 0.001);
+        writer.get();
+        executor.shutdown();
+
+        // Assert: новый фильтр нужного размера и без ложноотрицательных ответов
+        BookBloomFilter resized = fastRepository.getExistenceIndex();
+        assertEquals(1_000_000, resized.expectedInsertions());
+        assertEquals(0.001, resized.falsePositiveRate());
+        assertTrue(fastRepository.mightContain(BOOK_ID));
+        for (long id = 100; id < 20_100; id++) {
+            assertTrue(fastRepository.mightContain(id), "Фильтр потерял id " + id);
+        }
+    }
+
+    @Test
+    void testSearchAndChangeListener() {
+        // Arrange
+        BookRepository fastRepository = new BookRepository(LatencyModel.none(), Integer.MAX_VALUE);
+        List<Book[]> changes = new ArrayList<>();
+        fastRepository.addChangeListener((previous, current) -> changes.add(new Book[]{previous, current}));
+
+        // Act
+        fastRepository.save(new Book(4L, "Анна Каренина", BOOK_AUTHOR, new BigDecimal("21.00")));
+        List<Book> tolstoy = fastRepository.search("толстой");
+        fastRepository.deleteById(1L);
+
+        // Assert
+        assertEquals(List.of(1L, 4L), tolstoy.stream().map(Book::getId).toList());
+        assertEquals(List.of(4L), fastRepository.search("лев").stream().map(Book::getId).toList());
+        assertEquals(2, changes.size());
+        assertNull(changes.get(0)[0]);
+        assertEquals(BOOK_TITLE, changes.get(1)[0].getTitle());
+        assertNull(changes.get(1)[1]);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.repository;
+
+import org.example.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        index.index(new Book(1L, "Война и Мир", "Лев Толстой", BigDecimal.ONE));
+        index.index(new Book(2L, "Анна Каренина", "Лев Толстой", BigDecimal.ONE));
+        index.index(new Book(3L, "Мастер и Маргарита", "Михаил Булгаков", BigDecimal.ONE));
+    }
+
+    @Test
+    void testPrefixSearch() {
+        // Act & Assert
+        assertEquals(Set.of(1L, 2L), index.search("толст"));
+        assertEquals(Set.of(3L), index.search("мар"));
+        assertEquals(Set.of(1L, 3L), index.search("м"));
+        assertTrue(index.search("пушкин").isEmpty());
+        assertTrue(index.search("   ").isEmpty());
+    }
+
+    @Test
+    void testAllQueryWordsMustMatch() {
+        // Act & Assert
+        assertEquals(Set.of(2L), index.search("Лев анна"));
+        assertTrue(index.search("толстой булгаков").isEmpty());
+    }
+
+    @Test
+    void testReindexReplacesOldTokens() {
+        // Act
+        index.index(new Book(1L, "Воскресение", "Лев Толстой", BigDecimal.ONE));
+
+        // Assert
+        assertTrue(index.search("война").isEmpty());
+        assertEquals(Set.of(1L), index.search("воскр"));
+    }
+
+    @Test
+    void testRemove() {
+        // Act
+        index.remove(3L);
+
+        // Assert
+        assertTrue(index.search("булгаков").isEmpty());
+        assertTrue(index.search("мар").isEmpty());
+    }
+
+    @Test
+    void testNormalizationAndMatches() {
+        // Arrange
+        Book book = new Book(4L, "Ёлка", "Фёдор Сологуб", BigDecimal.ONE);
+
+        // Act & Assert
+        assertEquals("федор соло", BookSearchIndex.normalize("  Фёдор,  СОЛО "));
+        assertEquals(List.of("елка"), BookSearchIndex.tokenize("Ёлка!"));
+        assertTrue(BookSearchIndex.matches("елк федор", book));
+        assertFalse(BookSearchIndex.matches("елк толстой", book));
+        assertFalse(BookSearchIndex.matches("елк", null));
+    }
+}
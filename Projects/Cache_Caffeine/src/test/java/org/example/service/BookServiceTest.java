@@ -1,9 +1,33 @@
 package org.example.service;
 
+import org.example.config.BookCacheSettings;
+import org.example.config.WriteMode;
 import org.example.model.Book;
 import org.example.repository.BookRepository;
+import org.example.repository.LatencyModel;
+import org.example.stats.BookCacheStats;
+import org.example.stats.BookCacheStatsBean;
+import org.example.stats.BookStatsCounter;
+import org.example.trace.AccessTraceReader;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -17,6 +41,11 @@ class BookServiceTest {
         bookService = new BookService(bookRepository);
     }
 
+    @AfterEach
+    void tearDown() {
+        bookService.close();
+    }
+
     @Test
     void testGetBookWithSimpleCache() {
         // Act
@@ -91,4 +120,443 @@ class BookServiceTest {
         // Assert
         assertNull(book);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetBooks() {
+        // Act
+        long startTime = System.currentTimeMillis();
+        Map<Long, Book> firstCall = bookService.getBooks(List.of(1L, 2L, 3L, 999L));
+        long firstCallTime = System.currentTimeMillis() - startTime;
+
+        startTime = System.currentTimeMillis();
+        Map<Long, Book> secondCall = bookService.getBooks(List.of(1L, 2L, 3L));
+        long secondCallTime = System.currentTimeMillis() - startTime;
+
+        // Assert
+        assertEquals(3, firstCall.size());
+        assertFalse(firstCall.containsKey(999L));
+        assertEquals(firstCall, secondCall);
+        assertTrue(firstCallTime < 2000, "Все промахи должны загружаться одним запросом");
+        assertTrue(secondCallTime < 1000, "Повторный пакетный запрос должен обслуживаться из кэша");
+    }
+
+    @Test
+    void testAsyncRefreshServesStaleValue() throws Exception {
+        // Arrange
+        BookCacheSettings settings = new BookCacheSettings();
+        settings.setAsyncRefresh(true);
+        settings.setRefreshAfterWrite(Duration.ofMillis(100));
+        try (BookService refreshingService = new BookService(new BookRepository(), settings)) {
+            Book firstCall = refreshingService.getBookWithLoadingCacheAsync(1L).get();
+            Thread.sleep(200);
+
+            // Act
+            long startTime = System.currentTimeMillis();
+            Book staleCall = refreshingService.getBookWithLoadingCache(1L);
+            long staleCallTime = System.currentTimeMillis() - startTime;
+
+            // Assert
+            assertNotNull(firstCall);
+            assertEquals(firstCall, staleCall);
+            assertTrue(staleCallTime < 1000, "Устаревшее значение должно отдаваться сразу, обновление идет в фоне");
+        }
+    }
+
+    @Test
+    void testGetBookWithFrontTier() {
+        // Arrange
+        BookCacheSettings settings = new BookCacheSettings();
+        settings.setFrontTierCapacity(16);
+        try (BookService frontTierService = new BookService(new BookRepository(), settings)) {
+
+            // Act
+            Book firstCall = frontTierService.getBook(1L);
+            long startTime = System.currentTimeMillis();
+            Book secondCall = frontTierService.getBook(1L);
+            long secondCallTime = System.currentTimeMillis() - startTime;
+
+            // Assert
+            assertNotNull(firstCall);
+            assertEquals(firstCall, secondCall);
+            assertEquals(firstCall, frontTierService.getBookWithLoadingCache(1L));
+            assertTrue(secondCallTime < 1000, "Второй вызов должен обслуживаться из кэша");
+        }
+    }
+
+    @Test
+    void testFrontTierDropsBooksEvictedFromLoadingCache() {
+        // Arrange: бюджета хватает примерно на две книги, уведомления об удалении приходят сразу
+        BookCacheSettings settings = new BookCacheSettings();
+        settings.setFrontTierCapacity(16);
+        settings.setMaximumWeightBytes(500);
+        settings.setExecutor(Runnable::run);
+        try (BookService frontTierService = new BookService(new BookRepository(LatencyModel.none(), Integer.MAX_VALUE), settings)) {
+            for (long id = 1; id <= 3; id++) {
+                frontTierService.getBook(id);
+            }
+            long missesBefore = frontTierService.getCacheStats("loading").missCount();
+
+            // Act
+            for (long id = 1; id <= 3; id++) {
+                frontTierService.getBook(id);
+            }
+
+            // Assert: вытесненная из Caffeine книга не отдается из примитивного кэша, а загружается заново
+            assertTrue(frontTierService.getCacheStats("loading").evictionCount() > 0);
+            assertTrue(frontTierService.getCacheStats("loading").missCount() > missesBefore);
+        }
+    }
+
+    @Test
+    void testSnapshotWarmStart(@TempDir Path tempDir) {
+        // Arrange
+        BookCacheSettings settings = new BookCacheSettings();
+        settings.setSnapshotPath(tempDir.resolve("books.snapshot"));
+        BookRepository bookRepository = new BookRepository();
+        try (BookService firstRun = new BookService(bookRepository, settings)) {
+            firstRun.getBooks(List.of(1L, 2L));
+        }
+
+        // Act
+        try (BookService secondRun = new BookService(bookRepository, settings)) {
+            long startTime = System.currentTimeMillis();
+            Map<Long, Book> books = secondRun.getBooks(List.of(1L, 2L));
+            long callTime = System.currentTimeMillis() - startTime;
+
+            // Assert
+            assertEquals(2, books.size());
+            assertEquals("Война и Мир", books.get(1L).getTitle());
+            assertTrue(callTime < 1000, "После теплого старта книги должны быть в кэше без обращения к репозиторию");
+        }
+    }
+
+    @Test
+    void testCorruptSnapshotDoesNotBlockStartup(@TempDir Path tempDir) throws Exception {
+        // Arrange: снимок, обрезанный посреди записи
+        BookCacheSettings settings = new BookCacheSettings();
+        settings.setSnapshotPath(tempDir.resolve("books.snapshot"));
+        BookRepository bookRepository = new BookRepository();
+        try (BookService firstRun = new BookService(bookRepository, settings)) {
+            firstRun.getBooks(List.of(1L, 2L));
+        }
+        byte[] bytes = Files.readAllBytes(settings.getSnapshotPath());
+        Files.write(settings.getSnapshotPath(), Arrays.copyOf(bytes, bytes.length - 5));
+
+        // Act & Assert: сервис стартует с холодным кэшем и продолжает работать
+        try (BookService secondRun = new BookService(bookRepository, settings)) {
+            assertEquals("Война и Мир", secondRun.getBookWithLoadingCache(1L).getTitle());
+        }
+    }
+
+    @Test
+    void testConcurrentMissesAcrossCachesAreCoalesced() {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Act: один и тот же id одновременно запрашивается через все три кэша
+        CompletableFuture<Book> simple = CompletableFuture.supplyAsync(() -> bookService.getBookWithSimpleCache(1L), executor);
+        CompletableFuture<Book> expiring = CompletableFuture.supplyAsync(() -> bookService.getBookWithExpiringCache(1L), executor);
+        Book loading = bookService.getBookWithLoadingCache(1L);
+        executor.shutdown();
+
+        // Assert
+        assertEquals(loading, simple.join());
+        assertEquals(loading, expiring.join());
+        assertEquals(1, bookService.getLoadCount());
+        assertEquals(2, bookService.getDeduplicatedLoadCount());
+    }
+
+    @Test
+    void testWeightedCacheStaysWithinByteBudget() {
+        // Arrange: бюджета хватает примерно на две книги
+        BookCacheSettings settings = new BookCacheSettings();
+        settings.setMaximumWeightBytes(600);
+        try (BookService weightedService = new BookService(new BookRepository(), settings)) {
+
+            // Act
+            Map<Long, Book> books = weightedService.getBooks(List.of(1L, 2L, 3L));
+            long loadingWeight = weightedService.getWeightedSizes().get("loading");
+
+            // Assert
+            assertEquals(3, books.size());
+            assertTrue(loadingWeight > 0);
+            // Три книги с расходом Caffeine на запись (около 690 байт) в бюджет не помещаются
+            assertTrue(weightedService.getCacheStats("loading").evictionCount() > 0);
+            assertTrue(loadingWeight <= 600, "Вес кэша не должен превышать бюджет: " + loadingWeight);
+        }
+    }
+
+    @Test
+    void testAccessTraceRecording(@TempDir Path tempDir) {
+        // Arrange
+        BookCacheSettings settings = new BookCacheSettings();
+        settings.setTracePath(tempDir.resolve("books.trace"));
+
+        // Act
+        try (BookService tracedService = new BookService(new BookRepository(), settings)) {
+            tracedService.getBookWithSimpleCache(1L);
+            tracedService.getBookWithSimpleCache(1L);
+            tracedService.getBooks(List.of(2L, 3L));
+        }
+        List<Long> trace = new ArrayList<>();
+        AccessTraceReader.forEach(settings.getTracePath(), trace::add);
+
+        // Assert
+        assertEquals(List.of(1L, 1L, 2L, 3L), trace);
+    }
+
+    @Test
+    void testMissingBookIsRejectedByExistenceIndex() {
+        // Act
+        long startTime = System.currentTimeMillis();
+        Book book = bookService.getBookWithLoadingCache(999L);
+        long missTime = System.currentTimeMillis() - startTime;
+
+        // Assert
+        assertNull(book);
+        assertTrue(missTime < 500, "Несуществующий id должен отсекаться без запроса к репозиторию: " + missTime + " мс");
+        assertEquals(0, bookService.getLoadCount());
+        assertEquals(1, bookService.getRejectedLoadCount());
+    }
+
+    @Test
+    void testExistenceIndexIsSizedFromSettings() {
+        // Arrange
+        BookRepository repository = new BookRepository(LatencyModel.none(), Integer.MAX_VALUE);
+        BookCacheSettings settings = new BookCacheSettings();
+        settings.setExistenceExpectedBooks(1_000_000);
+        settings.setExistenceFalsePositiveRate(0.001);
+
+        // Act
+        try (BookService sizedService = new BookService(repository, settings)) {
+
+            // Assert: фильтр пересоздан под настройки и по-прежнему знает книги репозитория
+            assertEquals(1_000_000, repository.getExistenceIndex().expectedInsertions());
+            assertEquals(0.001, repository.getExistenceIndex().falsePositiveRate());
+            assertNotNull(sizedService.getBookWithLoadingCache(1L));
+            assertNull(sizedService.getBookWithLoadingCache(999L));
+            assertEquals(1, sizedService.getRejectedLoadCount());
+        }
+    }
+
+    @Test
+    void testWriteThroughUpdatesRepositoryAndCaches() {
+        // Arrange
+        BookRepository repository = new BookRepository(LatencyModel.none(), Integer.MAX_VALUE);
+        try (BookService writeThroughService = new BookService(repository)) {
+            writeThroughService.getBookWithSimpleCache(1L);
+            Book updated = new Book(1L, "Война и Мир", "Лев Толстой", new BigDecimal("35.00"));
+
+            // Act
+            writeThroughService.updateBook(updated);
+
+            // Assert
+            assertEquals(new BigDecimal("35.00"), repository.findByid(1L).getPrice());
+            assertEquals(updated, writeThroughService.getBookWithSimpleCache(1L));
+            assertEquals(updated, writeThroughService.getBookWithLoadingCache(1L));
+            assertEquals(1, writeThroughService.getLoadCount());
+        }
+    }
+
+    @Test
+    void testConcurrentWriteThroughUpdatesOfSameIdKeepCachesInSyncWithRepository() {
+        // Arrange: задержка записи в репозиторий расширяет окно между save и обновлением кэшей
+        BookRepository repository = new BookRepository(LatencyModel.fixed(Duration.ofMillis(1)), Integer.MAX_VALUE);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (BookService writeThroughService = new BookService(repository)) {
+            List<CompletableFuture<Void>> updates = new ArrayList<>();
+
+            // Act: восемь потоков одновременно пишут разные цены одной книги
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                updates.add(CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        writeThroughService.updateBook(new Book(1L, "Война и Мир", "Лев Толстой",
+                                BigDecimal.valueOf(thread * 1000 + i)));
+                    }
+                }, executor));
+            }
+            updates.forEach(CompletableFuture::join);
+
+            // Assert: все кэши держат ту же версию, что последней записана в репозиторий
+            BigDecimal stored = repository.findByid(1L).getPrice();
+            assertEquals(stored, writeThroughService.getBookWithSimpleCache(1L).getPrice());
+            assertEquals(stored, writeThroughService.getBookWithExpiringCache(1L).getPrice());
+            assertEquals(stored, writeThroughService.getBookWithLoadingCache(1L).getPrice());
+            assertEquals(stored, writeThroughService.getBook(1L).getPrice());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testWriteBehindCoalescesAndFlushesOnClose() {
+        // Arrange
+        BookRepository repository = new BookRepository(LatencyModel.none(), Integer.MAX_VALUE);
+        BookCacheSettings settings = new BookCacheSettings();
+        settings.setWriteMode(WriteMode.WRITE_BEHIND);
+        settings.setWriteBehindInterval(Duration.ofMinutes(1));
+        BookService writeBehindService = new BookService(repository, settings);
+
+        // Act: серия обновлений цен нескольких книг
+        for (int i = 1; i <= 3000; i++) {
+            long id = i % 3 + 1;
+            writeBehindService.updateBook(new Book(id, "Книга " + id, "Автор", BigDecimal.valueOf(i)));
+        }
+        writeBehindService.invalidateCache(3L);
+
+        // Assert: кэш и промах видят новую версию, в репозитории пока старая
+        assertEquals(BigDecimal.valueOf(3000), writeBehindService.getBookWithSimpleCache(1L).getPrice());
+        assertEquals(BigDecimal.valueOf(2999), writeBehindService.getBookWithLoadingCache(3L).getPrice());
+        assertEquals(new BigDecimal("19.99"), repository.findByid(3L).getPrice());
+        assertEquals(3, writeBehindService.getPendingWriteCount());
+        assertEquals(2997, writeBehindService.getCoalescedWriteCount());
+        assertEquals(0, writeBehindService.getLoadCount());
+
+        writeBehindService.close();
+        assertEquals(BigDecimal.valueOf(3000), repository.findByid(1L).getPrice());
+        assertEquals(BigDecimal.valueOf(2999), repository.findByid(3L).getPrice());
+    }
+
+    @Test
+    void testMutatingReturnedBookDoesNotChangeCache() {
+        // Arrange
+        Book firstCall = bookService.getBookWithLoadingCache(1L);
+
+        // Act
+        firstCall.setTitle("Испорченное название");
+        firstCall.setPrice(BigDecimal.ZERO);
+        Book secondCall = bookService.getBookWithLoadingCache(1L);
+
+        // Assert: кэш хранит неизменяемую копию, каждый вызов получает свой Book
+        assertNotSame(firstCall, secondCall);
+        assertEquals("Война и Мир", secondCall.getTitle());
+        assertEquals(new BigDecimal("29.99"), secondCall.getPrice());
+    }
+
+    @Test
+    void testSearchResultsAreCachedAndInvalidatedOnChange() {
+        // Arrange
+        BookRepository repository = new BookRepository(LatencyModel.fixed(Duration.ofMillis(200)), Integer.MAX_VALUE);
+        try (BookService searchService = new BookService(repository)) {
+
+            // Act
+            List<Book> firstCall = searchService.searchBooks("Лев Толст");
+            searchService.getBooks(List.of(1L));
+            long startTime = System.currentTimeMillis();
+            List<Book> secondCall = searchService.searchBooks("  лев   толст ");
+            long secondCallTime = System.currentTimeMillis() - startTime;
+
+            // Assert: повторный запрос (тот же после нормализации) обслуживается из кэша
+            assertEquals(List.of(1L), firstCall.stream().map(Book::getId).toList());
+            assertEquals(firstCall, secondCall);
+            assertTrue(secondCallTime < 200, "Повторный поиск не должен идти в репозиторий: " + secondCallTime + " мс");
+
+            // Изменение, не влияющее на запрос, результат не сбрасывает
+            searchService.updateBook(new Book(3L, "Мастер и Маргарита", "Михаил Булгаков", new BigDecimal("9.99")));
+            assertEquals(1, searchService.getCachedSearchCount());
+
+            // Новая книга автора сбрасывает запрос, и следующий поиск ее находит
+            searchService.updateBook(new Book(4L, "Анна Каренина", "Лев Толстой", new BigDecimal("21.00")));
+            assertEquals(0, searchService.getCachedSearchCount());
+            assertEquals(List.of(1L, 4L), searchService.searchBooks("лев толст").stream().map(Book::getId).toList());
+        }
+    }
+
+    @Test
+    void testCacheStatistics() {
+        // Arrange
+        try (BookService statsService = new BookService(new BookRepository(LatencyModel.fixed(Duration.ofMillis(20)), Integer.MAX_VALUE))) {
+
+            // Act
+            statsService.getBookWithSimpleCache(1L);
+            statsService.getBookWithSimpleCache(1L);
+            statsService.getBookWithSimpleCache(1L);
+            statsService.getBookWithLoadingCache(2L);
+            Map<String, BookCacheStats> stats = statsService.getCacheStats();
+
+            // Assert
+            assertEquals(List.of("simple", "expiring", "loading"), new ArrayList<>(stats.keySet()));
+            BookCacheStats simple = stats.get("simple");
+            assertEquals(2, simple.hitCount());
+            assertEquals(1, simple.missCount());
+            assertEquals(1, simple.loadCount());
+            assertTrue(simple.loadP99Nanos() >= 20_000_000, "Время загрузки включает задержку репозитория");
+            assertEquals(1, simple.weightedSize());
+            assertEquals(0, stats.get("expiring").missCount());
+            assertEquals(1, stats.get("loading").missCount());
+        }
+    }
+
+    @Test
+    void testStatsSinkAndJmx() throws Exception {
+        // Arrange
+        List<Collection<BookCacheStats>> published = new ArrayList<>();
+        BookCacheSettings settings = new BookCacheSettings();
+        settings.setStatsSink(published::add);
+        settings.setJmxName("stats-test");
+        BookService statsService = new BookService(new BookRepository(LatencyModel.none(), Integer.MAX_VALUE), settings);
+        ObjectName name = new ObjectName("org.example:type=BookCache,service=\"stats-test\",name=\"loading\"");
+
+        // Act
+        statsService.getBookWithLoadingCache(1L);
+        statsService.getBookWithLoadingCache(1L);
+        Object hits = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "HitCount");
+        Object loads = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "LoadCount");
+        Object hitRate = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "HitRate");
+        statsService.close();
+
+        // Assert: после close бин снят с регистрации, а получатель получил итоговый снимок
+        assertEquals(1L, hits);
+        assertEquals(1L, loads);
+        assertEquals(0.5, hitRate);
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        assertEquals(1, published.size());
+        assertEquals(3, published.get(0).size());
+    }
+
+    @Test
+    void testFailedJmxRegistrationReleasesPartialRegistrations() throws Exception {
+        // Arrange: имя бина кэша loading уже занято, simple и expiring успеют зарегистрироваться
+        ObjectName taken = BookCacheStatsBean.register("jmx-conflict", "loading", new BookStatsCounter(), () -> 0);
+        ObjectName simple = new ObjectName("org.example:type=BookCache,service=\"jmx-conflict\",name=\"simple\"");
+        BookCacheSettings settings = new BookCacheSettings();
+        settings.setJmxName("jmx-conflict");
+        settings.setWriteMode(WriteMode.WRITE_BEHIND);
+
+        try {
+            // Act & Assert: сервис не создается и не оставляет после себя зарегистрированных бинов
+            assertThrows(IllegalStateException.class,
+                    () -> new BookService(new BookRepository(LatencyModel.none(), Integer.MAX_VALUE), settings));
+            assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(simple));
+        } finally {
+            BookCacheStatsBean.unregister(taken);
+        }
+    }
+
+    @Test
+    void testAdaptiveExpiryShortensTtlOfChangingBooks() {
+        // Arrange
+        BookRepository repository = new BookRepository(LatencyModel.none(), Integer.MAX_VALUE);
+        BookCacheSettings settings = new BookCacheSettings();
+        settings.setAdaptiveExpiry(true);
+        settings.setMinExpiry(Duration.ofSeconds(10));
+        settings.setMaxExpiry(Duration.ofHours(1));
+        try (BookService adaptiveService = new BookService(repository, settings)) {
+            adaptiveService.getBookWithExpiringCache(1L);
+            adaptiveService.getBookWithExpiringCache(2L);
+
+            // Act: цена книги 1 несколько раз подряд меняется в репозитории
+            for (int i = 0; i < 3; i++) {
+                repository.save(new Book(1L, "Война и Мир", "Лев Толстой", BigDecimal.valueOf(30 + i)));
+            }
+
+            // Assert: у часто меняющейся книги срок сократился до нижней границы, у стабильной - максимальный
+            Duration changing = adaptiveService.getExpiringTimeToLive(1L).orElseThrow();
+            Duration stable = adaptiveService.getExpiringTimeToLive(2L).orElseThrow();
+            assertTrue(changing.compareTo(Duration.ofSeconds(10)) <= 0, "TTL изменяющейся книги: " + changing);
+            assertTrue(stable.compareTo(Duration.ofMinutes(59)) > 0, "TTL стабильной книги: " + stable);
+            assertTrue(bookService.getExpiringTimeToLive(1L).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.stats;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookStatsCounterTest {
+
+    @Test
+    void testCountersAndLoadPercentiles() {
+        // Arrange
+        BookStatsCounter counter = new BookStatsCounter();
+
+        // Act
+        counter.recordHits(3);
+        counter.recordMisses(2);
+        for (int i = 1; i <= 100; i++) {
+            counter.recordLoadSuccess(i * 1_000_000L);
+        }
+        counter.recordLoadFailure(5_000_000);
+        counter.recordEviction(10, RemovalCause.SIZE);
+        CacheStats stats = counter.snapshot();
+        BookCacheStats snapshot = BookCacheStats.of("simple", stats, counter.getLoadLatency(), 42);
+
+        // Assert
+        assertEquals(3, stats.hitCount());
+        assertEquals(2, stats.missCount());
+        assertEquals(100, stats.loadSuccessCount());
+        assertEquals(1, stats.loadFailureCount());
+        assertEquals(1, stats.evictionCount());
+        assertEquals(10, stats.evictionWeight());
+        assertEquals(0.6, snapshot.hitRate(), 1e-9);
+        assertEquals(50_000_000, snapshot.loadP50Nanos(), 50_000_000 / 32.0);
+        assertEquals(99_000_000, snapshot.loadP99Nanos(), 99_000_000 / 32.0);
+        assertEquals(42, snapshot.weightedSize());
+        // Отдельные счетчики для JMX совпадают со снимком
+        assertEquals(stats.hitCount(), counter.hitCount());
+        assertEquals(stats.missCount(), counter.missCount());
+        assertEquals(stats.loadCount(), counter.loadCount());
+        assertEquals(stats.loadFailureCount(), counter.loadFailureCount());
+        assertEquals(stats.evictionCount(), counter.evictionCount());
+        assertEquals(stats.averageLoadPenalty(), counter.averageLoadNanos(), 1e-6);
+    }
+}
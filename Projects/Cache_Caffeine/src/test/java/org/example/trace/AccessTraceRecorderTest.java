@@ -0,0 +1,119 @@
+package org.example.trace;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessTraceRecorderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRecordAndRead() {
+        // Arrange: больше одного буфера (64 КБ = 4096 обращений), чтобы проверить сброс блоками
+        Path path = tempDir.resolve("books.trace");
+        int accesses = 20_000;
+
+        // Act
+        try (AccessTraceRecorder recorder = new AccessTraceRecorder(path)) {
+            for (long id = 0; id < accesses; id++) {
+                recorder.record(id % 97);
+            }
+        }
+        List<Long> ids = new ArrayList<>();
+        long count = AccessTraceReader.forEach(path, ids::add);
+
+        // Assert
+        assertEquals(accesses, count);
+        assertEquals(accesses, ids.size());
+        assertEquals(96L, ids.get(96));
+        assertEquals(0L, ids.get(97));
+    }
+
+    @Test
+    void testRecordsRelativeTime() throws InterruptedException {
+        // Arrange
+        Path path = tempDir.resolve("timed.trace");
+
+        // Act: два обращения с паузой между ними
+        try (AccessTraceRecorder recorder = new AccessTraceRecorder(path)) {
+            recorder.record(1L);
+            Thread.sleep(20);
+            recorder.record(2L);
+        }
+        List<long[]> accesses = new ArrayList<>();
+        AccessTraceReader.forEachAccess(path, (id, nanos) -> accesses.add(new long[]{id, nanos}));
+
+        // Assert
+        assertEquals(2, accesses.size());
+        assertEquals(1L, accesses.get(0)[0]);
+        assertEquals(2L, accesses.get(1)[0]);
+        assertTrue(accesses.get(0)[1] >= 0);
+        assertTrue(accesses.get(1)[1] - accesses.get(0)[1] >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    void testConcurrentRecordingKeepsEveryAccess() throws Exception {
+        // Arrange: потоков и обращений больше, чем помещается в кольцо, - писатель должен успевать
+        Path path = tempDir.resolve("concurrent.trace");
+        int threads = 8;
+        int perThread = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Act: каждый поток пишет свои id, по ним проверяем, что ничего не потерялось
+        try (AccessTraceRecorder recorder = new AccessTraceRecorder(path)) {
+            for (int t = 0; t < threads; t++) {
+                long base = (long) t * perThread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        recorder.record(base + i);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        boolean[] seen = new boolean[threads * perThread];
+        long count = AccessTraceReader.forEach(path, id -> seen[(int) id] = true);
+
+        // Assert
+        assertEquals((long) threads * perThread, count);
+        for (int i = 0; i < seen.length; i++) {
+            assertTrue(seen[i], "Потеряно обращение к id " + i);
+        }
+    }
+
+    @Test
+    void testRecordAfterCloseIsIgnored() {
+        // Arrange
+        Path path = tempDir.resolve("closed.trace");
+        AccessTraceRecorder recorder = new AccessTraceRecorder(path);
+        recorder.record(1L);
+        recorder.close();
+
+        // Act
+        recorder.record(2L);
+
+        // Assert
+        assertEquals(1, AccessTraceReader.forEach(path, id -> { }));
+    }
+}
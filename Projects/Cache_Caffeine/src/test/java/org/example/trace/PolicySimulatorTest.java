@@ -0,0 +1,85 @@
+package org.example.trace;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolicySimulatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testLruKeepsRecentlyUsedKey() {
+        // Arrange
+        SimulatedPolicy lru = new LruPolicy(2);
+
+        // Act & Assert
+        assertFalse(lru.access(1));
+        assertFalse(lru.access(2));
+        assertTrue(lru.access(1));   // 1 становится самым свежим
+        assertFalse(lru.access(3));  // вытесняется 2
+        assertTrue(lru.access(1));
+        assertFalse(lru.access(2));
+    }
+
+    @Test
+    void testFifoIgnoresAccessOrder() {
+        // Arrange
+        SimulatedPolicy fifo = new FifoPolicy(2);
+
+        // Act & Assert
+        assertFalse(fifo.access(1));
+        assertFalse(fifo.access(2));
+        assertTrue(fifo.access(1));
+        assertFalse(fifo.access(3));  // вытесняется 1, хотя к нему только что обращались
+        assertFalse(fifo.access(1));
+    }
+
+    @Test
+    void testArcIsScanResistant() {
+        // Arrange: горячий ключ 0 повторяется, между повторами - длинный проход по новым ключам
+        SimulatedPolicy arc = new ArcPolicy(10);
+        SimulatedPolicy lru = new LruPolicy(10);
+        int arcHits = 0;
+        int lruHits = 0;
+
+        // Act
+        for (long round = 0; round < 100; round++) {
+            for (long hot = 0; hot < 5; hot++) {
+                arcHits += arc.access(hot) ? 1 : 0;
+                lruHits += lru.access(hot) ? 1 : 0;
+                arcHits += arc.access(hot) ? 1 : 0;
+                lruHits += lru.access(hot) ? 1 : 0;
+            }
+            for (long scan = 0; scan < 20; scan++) {
+                long key = 1_000 + round * 20 + scan;
+                arc.access(key);
+                lru.access(key);
+            }
+        }
+
+        // Assert: проход вымывает горячие ключи из LRU, но не из T2 у ARC
+        assertTrue(arcHits > lruHits, "ARC: " + arcHits + ", LRU: " + lruHits);
+    }
+
+    @Test
+    void testHitRatioFromTrace() {
+        // Arrange
+        Path trace = tempDir.resolve("books.trace");
+        try (AccessTraceRecorder recorder = new AccessTraceRecorder(trace)) {
+            for (int i = 0; i < 10; i++) {
+                recorder.record(1L);
+            }
+        }
+
+        // Act
+        double hitRatio = PolicySimulator.hitRatio(trace, new TinyLfuPolicy(10));
+
+        // Assert: первый запрос - промах, остальные 9 - попадания
+        assertEquals(0.9, hitRatio, 1e-9);
+    }
+}
@@ -1,14 +1,15 @@
 package org.example.cache_caffeine_spring_boot.config;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.cache_caffeine_spring_boot.repository.ProductRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.TimeUnit;
-
 @Configuration
+@EnableConfigurationProperties(CaffeineCachesProperties.class)
 public class CacheConfig {
 
     /*
@@ -55,17 +56,38 @@ public class CacheConfig {
       Если вам нужна нестандартная конфигурация, которую нельзя задать через свойства.
       Если вы хотите использовать "no-op" кэш (отключение кэширования в тестах).
     */
+    /*
+    Настройки кешей берутся из application.yml (префикс cache, см. CaffeineCachesProperties):
+      cache.specs.<имя> - свои размер/вес, время жизни, обновление и статистика для каждого кеша
+      cache.default-spec - для кешей, которых нет в specs (по умолчанию прежние общие 60 минут / 500 записей)
+    Каждый кеш из specs строится отдельным экземпляром Caffeine при старте приложения.
+    cache.coalesce-loads (по умолчанию true) включает CoalescingCaffeineCacheManager:
+      одновременные промахи по одному ключу выполняют одну загрузку, остальные ждут ее результат
+      работает для @Cacheable(sync = true) и программного cache.get(key, () -> ...)
+      число подавленных повторных загрузок видно в статистике кеша (suppressedLoadCount)
+    При false используется ConfiguredCaffeineCacheManager без подсчета (настройки по имени кеша работают так же).
+    Кеши с record-stats публикуют подробные метрики в Micrometer (см. CacheMetrics и actuator-эндпоинт cachestats).
+    Для кеша products зарегистрирован загрузчик: если для него задан refresh-after-write,
+    Caffeine в фоне перечитывает продукт из базы по id, а удаленный продукт убирает из кеша.
+    С загрузчиком products становится LoadingCache, и у него меняется поведение Spring Cache API:
+      cache.get(key) при промахе не возвращает null, а загружает продукт из базы (и кладет его в кеш)
+    Поэтому диагностические чтения (ProductService.getFromCache) смотрят в кеш через нативный Caffeine
+    (policy().getIfPresentQuietly) и ничего не загружают.
+    */
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
-        cacheManager.setCaffeine(
-                //кастомизируем каффеин
-                Caffeine.newBuilder()
-                    .expireAfterWrite(60, TimeUnit.MINUTES)
-                    .initialCapacity(100)
-                    .maximumSize(500)
-                    .recordStats()
-        );
+    public CacheManager cacheManager(CaffeineCachesProperties properties,
+                                     ProductRepository productRepository,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        ConfiguredCaffeineCacheManager cacheManager = properties.isCoalesceLoads()
+                ? new CoalescingCaffeineCacheManager()
+                : new ConfiguredCaffeineCacheManager();
+        cacheManager.setCacheSpecs(properties.getDefaultSpec(), properties.getSpecs());
+        // Реестр метрик Micrometer от Spring Boot Actuator; без него кеши работают, но метрики не публикуют
+        cacheManager.setMeterRegistry(meterRegistry.getIfAvailable());
+        cacheManager.registerRefreshLoader("products",
+                key -> key instanceof Long id ? productRepository.findById(id).orElse(null) : null);
+        // Создаем настроенные кеши сразу, а не при первом обращении
+        properties.getSpecs().keySet().forEach(cacheManager::getCache);
         return cacheManager;
     }
 }
@@ -0,0 +1,70 @@
+package org.example.cache_caffeine_spring_boot.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/*
+Настройки одного кеша Caffeine, которые читаются из application.yml (см. CaffeineCachesProperties).
+Незаданное (null) значение означает, что соответствующая настройка не включается.
+Размер задается либо числом записей (maximum-size), либо суммарным весом (maximum-weight), не обоими сразу.
+Вес записи:
+  список (например, кеш productList) весит столько, сколько в нем элементов
+  любое другое значение весит 1
+Так бюджет maximum-weight для списков означает "не больше N продуктов во всех списках вместе".
+*/
+@Getter
+@Setter
+public class CacheSpec {
+
+    private Long maximumSize;
+    private Long maximumWeight;
+    private Integer initialCapacity;
+    private Duration expireAfterWrite;
+    private Duration expireAfterAccess;
+    // Требует загрузчик для кеша (ConfiguredCaffeineCacheManager.registerRefreshLoader)
+    private Duration refreshAfterWrite;
+    private boolean recordStats;
+
+    public Caffeine<Object, Object> toBuilder() {
+        return toBuilder(null);
+    }
+
+    // statsCounter - свой счетчик статистики (например, с публикацией в Micrometer), null - стандартный
+    public Caffeine<Object, Object> toBuilder(Supplier<? extends StatsCounter> statsCounter) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder();
+        if (maximumSize != null) {
+            builder.maximumSize(maximumSize);
+        }
+        if (maximumWeight != null) {
+            builder.maximumWeight(maximumWeight).weigher(CacheSpec::weigh);
+        }
+        if (initialCapacity != null) {
+            builder.initialCapacity(initialCapacity);
+        }
+        if (expireAfterWrite != null) {
+            builder.expireAfterWrite(expireAfterWrite);
+        }
+        if (expireAfterAccess != null) {
+            builder.expireAfterAccess(expireAfterAccess);
+        }
+        if (refreshAfterWrite != null) {
+            builder.refreshAfterWrite(refreshAfterWrite);
+        }
+        if (recordStats && statsCounter != null) {
+            builder.recordStats(statsCounter);
+        } else if (recordStats) {
+            builder.recordStats();
+        }
+        return builder;
+    }
+
+    private static int weigh(Object key, Object value) {
+        return value instanceof Collection<?> collection ? Math.max(1, collection.size()) : 1;
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.cache_caffeine_spring_boot.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+@ConfigurationProperties связывает свойства с префиксом "cache" из application.yml с полями этого класса:
+  cache.coalesce-loads       -> coalesceLoads
+  cache.max-cached-list-size -> maxCachedListSize
+  cache.default-spec.*       -> defaultSpec
+  cache.specs.<имя>.*        -> specs.get("<имя>")
+Spring Boot сам приводит имена (maximum-size -> maximumSize) и типы (например, "30m" -> Duration).
+Класс регистрируется через @EnableConfigurationProperties в CacheConfig.
+*/
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cache")
+public class CaffeineCachesProperties {
+
+    // Одновременные промахи по одному ключу выполняют одну загрузку (CoalescingCaffeineCacheManager)
+    private boolean coalesceLoads = true;
+
+    /*
+    Списки продуктов длиннее этого порога в кеш productList не кладутся:
+    такой список занял бы заметную часть бюджета кеша по весу и вытеснил бы много маленьких,
+    а ответ с ним все равно отдается потоком (ProductService.forEachProductByMinPrice)
+    */
+    private int maxCachedListSize = 1000;
+
+    // Настройки для кешей, которых нет в specs. По умолчанию - прежние общие настройки всех кешей
+    private CacheSpec defaultSpec = defaultSpec();
+
+    // Настройки по имени кеша. Эти кеши создаются при старте приложения
+    private Map<String, CacheSpec> specs = new LinkedHashMap<>();
+
+    private static CacheSpec defaultSpec() {
+        CacheSpec spec = new CacheSpec();
+        spec.setExpireAfterWrite(Duration.ofMinutes(60));
+        spec.setInitialCapacity(100);
+        spec.setMaximumSize(500L);
+        spec.setRecordStats(true);
+        return spec;
+    }
+}
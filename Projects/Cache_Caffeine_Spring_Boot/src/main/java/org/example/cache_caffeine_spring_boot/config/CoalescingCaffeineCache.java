@@ -0,0 +1,46 @@
+package org.example.cache_caffeine_spring_boot.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+CaffeineCache, который считает подавленные повторные загрузки.
+get(key, valueLoader) - это путь @Cacheable(sync = true) и программного cache.get(key, () -> ...).
+CaffeineCache выполняет его через Cache.get(key, mappingFunction) из Caffeine:
+  первый промах по ключу запускает загрузку
+  остальные потоки с тем же ключом ждут ее результат, а не идут в базу параллельно
+Другие ключи при этом не блокируются - ожидание только по конкретному ключу.
+Здесь к этому добавлен счетчик: вызов, который пришел на промах, но получил значение, загруженное
+другим потоком (его собственный valueLoader не вызывался), - это одна подавленная загрузка.
+Проверка наличия идет через getIfPresentQuietly, чтобы не портить статистику попаданий/промахов кеша.
+*/
+public class CoalescingCaffeineCache extends CaffeineCache {
+
+    private final LongAdder suppressedLoads = new LongAdder();
+
+    public CoalescingCaffeineCache(String name, Cache<Object, Object> cache, boolean allowNullValues) {
+        super(name, cache, allowNullValues);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        boolean cached = getNativeCache().policy().getIfPresentQuietly(key) != null;
+        boolean[] loaded = new boolean[1];
+        T value = super.get(key, () -> {
+            loaded[0] = true;
+            return valueLoader.call();
+        });
+        if (!cached && !loaded[0]) {
+            suppressedLoads.increment();
+        }
+        return value;
+    }
+
+    // Сколько загрузок не выполнилось, потому что тот же ключ уже грузил другой поток
+    public long getSuppressedLoadCount() {
+        return suppressedLoads.sum();
+    }
+}
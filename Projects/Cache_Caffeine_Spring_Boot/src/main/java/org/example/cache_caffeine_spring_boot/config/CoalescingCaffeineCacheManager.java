@@ -0,0 +1,27 @@
+package org.example.cache_caffeine_spring_boot.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+/*
+ConfiguredCaffeineCacheManager, все кеши которого - CoalescingCaffeineCache.
+CaffeineCacheManager создает кеш в createCaffeineCache и оборачивает нативный кеш Caffeine
+в Spring-кеш в adaptCaffeineCache. Переопределяем только обертку, поэтому все остальное
+(настройки по имени кеша, setCaffeine, registerCustomCache, динамическое создание кешей) работает как раньше,
+а объединение загрузок по ключу включено сразу для всех кешей.
+*/
+public class CoalescingCaffeineCacheManager extends ConfiguredCaffeineCacheManager {
+
+    @Override
+    protected org.springframework.cache.Cache adaptCaffeineCache(String name, Cache<Object, Object> cache) {
+        return new CoalescingCaffeineCache(name, cache, isAllowNullValues());
+    }
+
+    // Сумма подавленных повторных загрузок по всем кешам
+    public long getSuppressedLoadCount() {
+        return getCacheNames().stream()
+                .map(this::getCache)
+                .filter(CoalescingCaffeineCache.class::isInstance)
+                .mapToLong(cache -> ((CoalescingCaffeineCache) cache).getSuppressedLoadCount())
+                .sum();
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.cache_caffeine_spring_boot.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.cache_caffeine_spring_boot.metrics.CacheMetrics;
+import org.example.cache_caffeine_spring_boot.metrics.MeteredStatsCounter;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+CaffeineCacheManager, который строит каждый кеш по его собственной настройке (CacheSpec).
+Обычный CaffeineCacheManager создает все кеши из одного Caffeine builder (setCaffeine).
+Здесь переопределен createNativeCaffeineCache - метод, в котором менеджер создает нативный кеш Caffeine:
+  для имени из specs берется его настройка
+  для любого другого имени - настройка по умолчанию
+  если настройки не заданы совсем, работает как обычный CaffeineCacheManager
+Кеши остаются динамическими: неизвестное имя не ошибка, а новый кеш с настройкой по умолчанию.
+Если задан MeterRegistry, кеши из specs с record-stats получают MeteredStatsCounter и публикуют метрики в Micrometer.
+Кеши по настройке по умолчанию метрик не получают (статистика Caffeine у них остается): имя такого кеша
+может прийти из URL (/api/products/cache/{cacheName}/...), и каждое новое имя иначе добавляло бы
+в реестр десяток метрик с этим тегом - число метрик росло бы без ограничений.
+Для refreshAfterWrite Caffeine нужен загрузчик (CacheLoader), который знает, как перечитать значение по ключу.
+Его регистрируют для конкретного кеша через registerRefreshLoader.
+*/
+public class ConfiguredCaffeineCacheManager extends CaffeineCacheManager {
+
+    private final Map<String, CacheSpec> specs = new ConcurrentHashMap<>();
+    private final Map<String, CacheLoader<Object, Object>> refreshLoaders = new ConcurrentHashMap<>();
+    private final Map<String, CacheMetrics> cacheMetrics = new ConcurrentHashMap<>();
+    private CacheSpec defaultSpec;
+    private MeterRegistry meterRegistry;
+
+    public void setCacheSpecs(CacheSpec defaultSpec, Map<String, CacheSpec> specs) {
+        this.defaultSpec = defaultSpec;
+        this.specs.clear();
+        this.specs.putAll(specs);
+    }
+
+    // Кеши с record-stats публикуют метрики в этот реестр (см. CacheMetrics), null - не публикуют
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Метрики по имени кеша; при пересоздании кеша метрики с тем же именем продолжают копиться
+    public Map<String, CacheMetrics> getCacheMetrics() {
+        return Collections.unmodifiableMap(cacheMetrics);
+    }
+
+    public void registerRefreshLoader(String cacheName, CacheLoader<Object, Object> loader) {
+        refreshLoaders.put(cacheName, loader);
+    }
+
+    @Override
+    protected Cache<Object, Object> createNativeCaffeineCache(String name) {
+        CacheSpec spec = specs.getOrDefault(name, defaultSpec);
+        if (spec == null) {
+            return super.createNativeCaffeineCache(name);
+        }
+        CacheMetrics metrics = spec.isRecordStats() && meterRegistry != null && specs.containsKey(name)
+                ? cacheMetrics.computeIfAbsent(name, cacheName -> new CacheMetrics(cacheName, meterRegistry))
+                : null;
+        Caffeine<Object, Object> builder = spec.toBuilder(metrics != null ? () -> new MeteredStatsCounter(metrics) : null);
+
+        Cache<Object, Object> cache;
+        if (spec.getRefreshAfterWrite() == null) {
+            cache = builder.build();
+        } else {
+            CacheLoader<Object, Object> loader = refreshLoaders.get(name);
+            if (loader == null) {
+                throw new IllegalStateException("Cache '" + name + "' has refresh-after-write but no refresh loader");
+            }
+            cache = builder.build(loader);
+        }
+        if (metrics != null) {
+            metrics.bind(cache);
+        }
+        return cache;
+    }
+}
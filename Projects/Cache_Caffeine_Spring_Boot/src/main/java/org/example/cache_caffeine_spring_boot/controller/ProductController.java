@@ -1,12 +1,21 @@
 package org.example.cache_caffeine_spring_boot.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.example.cache_caffeine_spring_boot.model.Product;
+import org.example.cache_caffeine_spring_boot.service.CacheContentsPage;
 import org.example.cache_caffeine_spring_boot.service.ProductService;
+import org.springframework.cache.support.NullValue;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 
@@ -15,7 +24,11 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class ProductController {
 
+    // Больше записей кеша за одну страницу не отдаем
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final ProductService productService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/{id}")
     public ResponseEntity<Product> getProduct(@PathVariable Long id) {
@@ -24,9 +37,43 @@ public class ProductController {
                 .orElse(ResponseEntity.notFound().build());  // если не найден, возвращаем 404
     }
 
+    // Несколько продуктов за один запрос: GET /api/products/batch?ids=1,2,3
+    // Spring сам разбирает список id через запятую (или ids=1&ids=2) в List<Long>
+    @GetMapping("/batch")
+    public ResponseEntity<List<Product>> getProducts(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
+    }
+
+    /*
+    Список может быть очень длинным, поэтому он не собирается целиком, а пишется в ответ потоком:
+    forEachProductByMinPrice отдает продукты порциями из индекса цен и базы,
+    а JsonGenerator сразу пишет каждый в JSON-массив (как в getCacheContents ниже).
+    Формат ответа тот же, что и раньше: [{...}, {...}, ...]
+    */
     @GetMapping("/price/{minPrice}")
-    public ResponseEntity<List<Product>> getProductsByMinPrice(@PathVariable Double minPrice) {
-        return ResponseEntity.ok(productService.getProductsByMinPrice(minPrice));
+    public ResponseEntity<StreamingResponseBody> getProductsByMinPrice(@PathVariable Double minPrice) {
+        StreamingResponseBody body = out -> writeProductsByMinPrice(minPrice, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private void writeProductsByMinPrice(Double minPrice, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            // Consumer не может бросать IOException, поэтому ошибку записи передаем наружу в UncheckedIOException
+            try {
+                productService.forEachProductByMinPrice(minPrice, product -> {
+                    try {
+                        generator.writeObject(product);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+        }
     }
 
     @PostMapping
@@ -80,9 +127,49 @@ public class ProductController {
         return ResponseEntity.ok().build();
     }
 
+    /*
+    Содержимое кеша отдается страницами и пишется в ответ потоком:
+      cursor - значение nextCursor из предыдущей страницы (для первой страницы не передается)
+      limit - размер страницы (не больше MAX_PAGE_SIZE; на большом кеше страница может быть больше,
+              чтобы весь кеш проходился не больше чем за ProductService.MAX_PAGES_PER_SCAN страниц)
+    StreamingResponseBody - это тело ответа, которое Spring вызывает уже после выхода из метода
+    и отдает ему OutputStream ответа. JsonGenerator пишет JSON в этот поток по одной записи,
+    поэтому в памяти нет ни всей карты кеша, ни всего ответа целиком.
+    Ответ:
+      {"cacheName": "products", "entries": [{"key": 1, "value": {...}}, ...], "nextCursor": "..."}
+    nextCursor == null - больше страниц нет.
+    */
     @GetMapping("/cache/{cacheName}/contents")
-    public ResponseEntity<Map<Object, Object>> getCacheContents(@PathVariable String cacheName) {
-        return ResponseEntity.ok(productService.getCacheContents(cacheName));
+    public ResponseEntity<StreamingResponseBody> getCacheContents(
+            @PathVariable String cacheName,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        // Страница выбирается до начала ответа: ошибки (нет кеша, плохой курсор) вернутся обычным статусом
+        CacheContentsPage page = productService.getCacheContentsPage(cacheName, cursor, Math.min(limit, MAX_PAGE_SIZE));
+        StreamingResponseBody body = out -> writeCacheContents(page, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private void writeCacheContents(CacheContentsPage page, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            // Поток ответа закрывает сам Spring
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeStringField("cacheName", page.cacheName());
+            generator.writeArrayFieldStart("entries");
+            for (Map.Entry<Object, Object> entry : page.entries()) {
+                generator.writeStartObject();
+                generator.writeFieldName("key");
+                generator.writeObject(entry.getKey());
+                generator.writeFieldName("value");
+                // Так Spring хранит в кеше null (например, пустой Optional из getProductById)
+                generator.writeObject(entry.getValue() instanceof NullValue ? null : entry.getValue());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeStringField("nextCursor", page.nextCursor());
+            generator.writeEndObject();
+        }
     }
 
     @GetMapping("/cache/{cacheName}/stats")
@@ -90,6 +177,12 @@ public class ProductController {
         return ResponseEntity.ok(productService.getCacheStats(cacheName));
     }
 
+    // Некорректные параметры запроса (неизвестный кеш, плохой курсор) - это ошибка клиента, а не сервера
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body("Некорректный запрос: " + e.getMessage());
+    }
+
     /*
     @ExceptionHandler(Exception.class) - говорит Spring:
       "Этот метод будет обрабатывать все исключения типа Exception"
@@ -0,0 +1,178 @@
+package org.example.cache_caffeine_spring_boot.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/*
+Отсортированный индекс цен продуктов в памяти.
+Вместо findAll() и фильтрации всей таблицы запрос "все продукты дороже X" делается так:
+  tailMap(X) в отсортированной карте цена -> id находит первую подходящую цену за O(log n)
+  дальше просто перебираются k найденных id
+Итого O(log n + k), без полного прохода по таблице.
+Индекс обновляется слушателем сущности (ProductPriceIndexListener) после коммита каждой записи,
+поэтому в нем видны и изменения через сервис, и прямые сохранения через репозиторий.
+Чтение идет без блокировок, запись (put/remove) синхронизирована, потому что меняет две карты сразу.
+Обе карты лежат в одном объекте Snapshot, который rebuild целиком подменяет одной volatile-записью:
+читатель берет ссылку один раз и видит либо старый индекс, либо новый, но никогда не наполовину заполненный.
+*/
+@Component
+public class ProductPriceIndex {
+
+    // Текущий индекс: читатели берут ссылку один раз, rebuild подменяет ее целиком
+    private volatile Snapshot snapshot = new Snapshot();
+
+    // Изменения, пришедшие во время rebuild: id -> новая цена (null - продукт удален).
+    // null, пока пересборки нет. Доступ только под монитором this
+    private Map<Long, Double> pendingChanges;
+
+    // Две пересборки одновременно не выполняются
+    private final Object rebuildLock = new Object();
+
+    // Добавляет продукт или переносит его на новую цену. Продукт без цены в индекс не попадает
+    public synchronized void put(Long id, Double price) {
+        if (id == null) {
+            return;
+        }
+        snapshot.put(id, price);
+        if (pendingChanges != null) {
+            pendingChanges.put(id, price);
+        }
+    }
+
+    public synchronized void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        snapshot.remove(id);
+        if (pendingChanges != null) {
+            pendingChanges.put(id, null);
+        }
+    }
+
+    /*
+    Полностью пересобирает индекс, например при старте приложения.
+    loader возвращает снимок цен из базы (id -> цена). Новые карты строятся в стороне и подменяют
+    текущие одной записью, поэтому запросы во время пересборки работают со старым индексом целиком.
+    put и remove, пришедшие после начала пересборки, записываются в pendingChanges и применяются
+    поверх снимка перед подменой: снимок мог быть прочитан раньше их коммита, и без этого
+    его старая цена затерла бы свежую.
+    */
+    public void rebuild(Supplier<Map<Long, Double>> loader) {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                pendingChanges = new HashMap<>();
+            }
+            try {
+                Snapshot fresh = new Snapshot();
+                loader.get().forEach(fresh::put);
+                synchronized (this) {
+                    pendingChanges.forEach(fresh::put);
+                    snapshot = fresh;
+                }
+            } finally {
+                synchronized (this) {
+                    pendingChanges = null;
+                }
+            }
+        }
+    }
+
+    // id продуктов с ценой >= minPrice в порядке возрастания цены
+    public List<Long> idsWithMinPrice(double minPrice) {
+        List<Long> ids = new ArrayList<>();
+        snapshot.idsByPrice.tailMap(minPrice, true).values().forEach(ids::addAll);
+        return ids;
+    }
+
+    /*
+    То же самое, но лениво: id читаются из индекса по мере того, как их забирает поток.
+    Список всех подходящих id не собирается, поэтому для больших выборок память не растет.
+    Обход идет прямо по живым картам: изменения, сделанные во время обхода, могут попасть
+    или не попасть в результат, но исключений не будет (так работают итераторы concurrent-коллекций).
+    */
+    public Stream<Long> streamIdsWithMinPrice(double minPrice) {
+        return snapshot.idsByPrice.tailMap(minPrice, true).values().stream().flatMap(Set::stream);
+    }
+
+    /*
+    Сколько продуктов с ценой >= minPrice, но считаем не дальше limit:
+    если подходящих больше, возвращается limit + 1. Так проверка "список не больше limit"
+    стоит O(log n + limit), а не проход по всему хвосту индекса.
+    */
+    public int countWithMinPrice(double minPrice, int limit) {
+        int count = 0;
+        for (Set<Long> ids : snapshot.idsByPrice.tailMap(minPrice, true).values()) {
+            count += ids.size();
+            if (count > limit) {
+                return limit + 1;
+            }
+        }
+        return count;
+    }
+
+    /*
+    Ключ кеша productList для запроса с минимальной ценой minPrice.
+    Результат запроса зависит не от самого minPrice, а только от наименьшей цены в индексе, которая >= minPrice:
+      если в базе есть цены 100 и 200, то запросы 150, 180 и 199.99 вернут один и тот же список
+    Поэтому ключом служит эта ближайшая цена, и такие запросы делят одну запись в кеше,
+    а не плодят почти одинаковые списки на каждое значение, которое прислал клиент.
+    Если подходящих цен нет, все такие запросы получают общий ключ +бесконечность (пустой список).
+    */
+    public Double cacheKey(double minPrice) {
+        Double ceiling = snapshot.idsByPrice.ceilingKey(minPrice);
+        return ceiling != null ? ceiling : Double.POSITIVE_INFINITY;
+    }
+
+    public int size() {
+        return snapshot.priceById.size();
+    }
+
+    // Пара карт индекса. Меняется только под монитором ProductPriceIndex (или до публикации в rebuild)
+    private static final class Snapshot {
+
+        // Цена -> id продуктов с этой ценой, отсортировано по цене
+        final ConcurrentSkipListMap<Double, Set<Long>> idsByPrice = new ConcurrentSkipListMap<>();
+
+        // Обратная карта id -> цена: нужна, чтобы при изменении цены убрать id со старой цены
+        final Map<Long, Double> priceById = new ConcurrentHashMap<>();
+
+        void put(Long id, Double price) {
+            Double previous = price == null ? priceById.remove(id) : priceById.put(id, price);
+            if (price != null && price.equals(previous)) {
+                return;
+            }
+            if (previous != null) {
+                unlink(id, previous);
+            }
+            if (price != null) {
+                idsByPrice.computeIfAbsent(price, key -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+
+        void remove(Long id) {
+            Double previous = priceById.remove(id);
+            if (previous != null) {
+                unlink(id, previous);
+            }
+        }
+
+        private void unlink(Long id, Double price) {
+            Set<Long> ids = idsByPrice.get(price);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    idsByPrice.remove(price, ids);
+                }
+            }
+        }
+    }
+}
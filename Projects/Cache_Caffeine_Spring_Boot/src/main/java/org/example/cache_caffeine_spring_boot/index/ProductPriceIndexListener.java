@@ -0,0 +1,38 @@
+package org.example.cache_caffeine_spring_boot.index;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.example.cache_caffeine_spring_boot.model.Product;
+import org.example.cache_caffeine_spring_boot.support.AfterCommit;
+import org.springframework.stereotype.Component;
+
+/*
+JPA-слушатель сущности Product, который держит ProductPriceIndex в актуальном состоянии.
+Hibernate вызывает его после вставки, обновления и удаления строки - неважно, через сервис
+или напрямую через репозиторий. Spring Boot подключает к Hibernate контейнер бинов Spring,
+поэтому слушатель - обычный бин, и зависимости в него внедряются через конструктор.
+Изменения применяются к индексу только после коммита транзакции:
+если транзакция откатится, в индекс не попадет цена, которой в базе нет.
+*/
+@Component
+@RequiredArgsConstructor
+public class ProductPriceIndexListener {
+
+    private final ProductPriceIndex priceIndex;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Product product) {
+        Long id = product.getId();
+        Double price = product.getPrice();
+        AfterCommit.run(() -> priceIndex.put(id, price));
+    }
+
+    @PostRemove
+    public void onRemove(Product product) {
+        Long id = product.getId();
+        AfterCommit.run(() -> priceIndex.remove(id));
+    }
+}
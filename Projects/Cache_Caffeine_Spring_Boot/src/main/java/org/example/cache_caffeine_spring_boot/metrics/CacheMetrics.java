@@ -0,0 +1,166 @@
+package org.example.cache_caffeine_spring_boot.metrics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/*
+Метрики одного кеша (по имени) в Micrometer.
+Создаются один раз на имя кеша и переживают пересоздание самого кеша (например, setCaffeine в менеджере):
+каждый новый экземпляр Caffeine получает свой MeteredStatsCounter, который пишет сюда же.
+Метрики (тег cache = имя кеша):
+  cache.stats.requests{result=hit|miss}        - счетчики обращений
+  cache.stats.hit.ratio{window=1m|5m|15m}      - доля попаданий за скользящее окно
+  cache.stats.load{result=success|failure}     - таймер загрузок: число, время, перцентили p50/p99/p999
+  cache.stats.evictions{cause=size|expired|collected} - вытеснения по причине
+  cache.stats.eviction.weight                  - суммарный вес вытесненных записей
+  cache.stats.weighted.size                    - текущий вес кеша (для кешей без весов - число записей)
+Spring Boot Actuator сам публикует стандартные cache.gets/cache.size и т.д. из Caffeine stats(),
+поэтому здесь свой префикс cache.stats, чтобы имена не пересекались.
+*/
+public class CacheMetrics {
+
+    static final Duration[] WINDOWS = {Duration.ofMinutes(1), Duration.ofMinutes(5), Duration.ofMinutes(15)};
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private final String cacheName;
+    private final SlidingHitRate hitRate;
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer loadSuccess;
+    private final Timer loadFailure;
+    private final Map<RemovalCause, Counter> evictions = new EnumMap<>(RemovalCause.class);
+    private final Counter evictionWeight;
+
+    // Текущий экземпляр кеша с этим именем - для веса/размера
+    private volatile Cache<?, ?> cache;
+
+    public CacheMetrics(String cacheName, MeterRegistry registry) {
+        this(cacheName, registry, System::nanoTime);
+    }
+
+    CacheMetrics(String cacheName, MeterRegistry registry, LongSupplier clock) {
+        this.cacheName = cacheName;
+        this.hitRate = new SlidingHitRate(WINDOWS[WINDOWS.length - 1], clock);
+        this.hits = requests(registry, "hit");
+        this.misses = requests(registry, "miss");
+        this.loadSuccess = loadTimer(registry, "success");
+        this.loadFailure = loadTimer(registry, "failure");
+        for (RemovalCause cause : RemovalCause.values()) {
+            if (cause.wasEvicted()) {
+                evictions.put(cause, Counter.builder("cache.stats.evictions")
+                        .description("Cache evictions by cause")
+                        .tag("cache", cacheName)
+                        .tag("cause", cause.name().toLowerCase())
+                        .register(registry));
+            }
+        }
+        this.evictionWeight = Counter.builder("cache.stats.eviction.weight")
+                .description("Total weight of evicted cache entries")
+                .tag("cache", cacheName)
+                .register(registry);
+        for (Duration window : WINDOWS) {
+            Gauge.builder("cache.stats.hit.ratio", this, metrics -> metrics.hitRate.hitRate(window))
+                    .description("Cache hit ratio over a sliding window")
+                    .tag("cache", cacheName)
+                    .tag("window", window.toMinutes() + "m")
+                    .register(registry);
+        }
+        Gauge.builder("cache.stats.weighted.size", this, CacheMetrics::weightedSize)
+                .description("Current weighted size of the cache")
+                .tag("cache", cacheName)
+                .register(registry);
+    }
+
+    // Привязывает метрики размера к новому экземпляру кеша с этим именем
+    public void bind(Cache<?, ?> cache) {
+        this.cache = cache;
+    }
+
+    void recordHits(int count) {
+        hits.increment(count);
+        hitRate.recordHits(count);
+    }
+
+    void recordMisses(int count) {
+        misses.increment(count);
+        hitRate.recordMisses(count);
+    }
+
+    void recordLoad(long loadTimeNanos, boolean success) {
+        (success ? loadSuccess : loadFailure).record(loadTimeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordEviction(int weight, RemovalCause cause) {
+        Counter counter = evictions.get(cause);
+        if (counter != null) {
+            counter.increment();
+        }
+        evictionWeight.increment(weight);
+    }
+
+    public CacheMetricsSnapshot snapshot() {
+        ValueAtPercentile[] percentiles = loadSuccess.takeSnapshot().percentileValues();
+        Map<String, Long> evictionsByCause = new LinkedHashMap<>();
+        evictions.forEach((cause, counter) -> evictionsByCause.put(cause.name().toLowerCase(), (long) counter.count()));
+        return new CacheMetricsSnapshot(
+                cacheName,
+                (long) hits.count(),
+                (long) misses.count(),
+                hitRate.hitRate(WINDOWS[0]),
+                hitRate.hitRate(WINDOWS[1]),
+                hitRate.hitRate(WINDOWS[2]),
+                loadSuccess.count(),
+                loadFailure.count(),
+                percentileMillis(percentiles, 0),
+                percentileMillis(percentiles, 1),
+                percentileMillis(percentiles, 2),
+                evictionsByCause,
+                (long) evictionWeight.count(),
+                (long) weightedSize());
+    }
+
+    private double weightedSize() {
+        Cache<?, ?> current = cache;
+        if (current == null) {
+            return 0;
+        }
+        var eviction = current.policy().eviction();
+        if (eviction.isPresent() && eviction.get().weightedSize().isPresent()) {
+            return eviction.get().weightedSize().getAsLong();
+        }
+        return current.estimatedSize();
+    }
+
+    private Counter requests(MeterRegistry registry, String result) {
+        return Counter.builder("cache.stats.requests")
+                .description("Cache lookups")
+                .tag("cache", cacheName)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private Timer loadTimer(MeterRegistry registry, String result) {
+        return Timer.builder("cache.stats.load")
+                .description("Time spent loading values into the cache")
+                .tag("cache", cacheName)
+                .tag("result", result)
+                .publishPercentiles(PERCENTILES)
+                .register(registry);
+    }
+
+    private static double percentileMillis(ValueAtPercentile[] percentiles, int index) {
+        return index < percentiles.length ? percentiles[index].value(TimeUnit.MILLISECONDS) : 0;
+    }
+}
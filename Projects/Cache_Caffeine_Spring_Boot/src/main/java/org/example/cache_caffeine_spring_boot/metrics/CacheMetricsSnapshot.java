@@ -0,0 +1,25 @@
+package org.example.cache_caffeine_spring_boot.metrics;
+
+import java.util.Map;
+
+/*
+Снимок метрик одного кеша для actuator-эндпоинта cachestats.
+Счетчики накопительные с момента старта приложения (не сбрасываются при пересоздании кеша),
+доли попаданий - за скользящие окна, перцентили времени загрузки - за последние пару минут (как в Micrometer Timer).
+*/
+public record CacheMetricsSnapshot(
+        String cacheName,
+        long hitCount,
+        long missCount,
+        double hitRate1m,
+        double hitRate5m,
+        double hitRate15m,
+        long loadSuccessCount,
+        long loadFailureCount,
+        double loadTimeP50Millis,
+        double loadTimeP99Millis,
+        double loadTimeP999Millis,
+        Map<String, Long> evictionsByCause,
+        long evictionWeight,
+        long weightedSize) {
+}
@@ -0,0 +1,47 @@
+package org.example.cache_caffeine_spring_boot.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.example.cache_caffeine_spring_boot.config.ConfiguredCaffeineCacheManager;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+Actuator-эндпоинт со снимком метрик всех кешей:
+  GET /actuator/cachestats              - все кеши
+  GET /actuator/cachestats/{cacheName}  - один кеш (404, если для кеша метрик нет)
+@Endpoint - это эндпоинт Actuator, не привязанный к технологии: Spring Boot сам публикует его по HTTP (и в JMX).
+@ReadOperation соответствует GET, @Selector - переменная часть пути.
+Те же значения доступны как метрики Micrometer (GET /actuator/metrics/cache.stats.hit.ratio и т.д.).
+*/
+@Component
+@Endpoint(id = "cachestats")
+@RequiredArgsConstructor
+public class CacheStatsEndpoint {
+
+    private final CacheManager cacheManager;
+
+    @ReadOperation
+    public Map<String, CacheMetricsSnapshot> caches() {
+        Map<String, CacheMetricsSnapshot> snapshots = new TreeMap<>();
+        if (cacheManager instanceof ConfiguredCaffeineCacheManager configured) {
+            configured.getCacheMetrics().forEach((name, metrics) -> snapshots.put(name, metrics.snapshot()));
+        }
+        return snapshots;
+    }
+
+    // null превращается Actuator в ответ 404
+    @ReadOperation
+    public CacheMetricsSnapshot cache(@Selector String cacheName) {
+        if (cacheManager instanceof ConfiguredCaffeineCacheManager configured) {
+            CacheMetrics metrics = configured.getCacheMetrics().get(cacheName);
+            return metrics != null ? metrics.snapshot() : null;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.cache_caffeine_spring_boot.metrics;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+
+/*
+StatsCounter для Caffeine.recordStats(...): Caffeine сообщает ему о каждом попадании, промахе,
+загрузке и вытеснении. Обычный счетчик (ConcurrentStatsCounter) остается - из него cache.stats()
+отдает привычную статистику текущего экземпляра кеша (ProductService.getCacheStats).
+Каждое событие дополнительно передается в CacheMetrics, откуда оно попадает в Micrometer.
+*/
+public class MeteredStatsCounter implements StatsCounter {
+
+    private final StatsCounter delegate = new ConcurrentStatsCounter();
+    private final CacheMetrics metrics;
+
+    public MeteredStatsCounter(CacheMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void recordHits(int count) {
+        delegate.recordHits(count);
+        metrics.recordHits(count);
+    }
+
+    @Override
+    public void recordMisses(int count) {
+        delegate.recordMisses(count);
+        metrics.recordMisses(count);
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTime) {
+        delegate.recordLoadSuccess(loadTime);
+        metrics.recordLoad(loadTime, true);
+    }
+
+    @Override
+    public void recordLoadFailure(long loadTime) {
+        delegate.recordLoadFailure(loadTime);
+        metrics.recordLoad(loadTime, false);
+    }
+
+    @Override
+    public void recordEviction(int weight, RemovalCause cause) {
+        delegate.recordEviction(weight, cause);
+        metrics.recordEviction(weight, cause);
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        return delegate.snapshot();
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.cache_caffeine_spring_boot.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/*
+Доля попаданий в кеш за последние N минут (скользящее окно).
+Накопительный hitRate() из Caffeine считается с момента создания кеша, и после деплоя
+свежая просадка в нем почти не видна. Здесь время разбито на слоты по SLOT (5 секунд),
+слоты лежат в кольцевом буфере, покрывающем самое длинное окно:
+  запись попадания/промаха добавляется в счетчик текущего слота
+  если слот в буфере принадлежит старому интервалу времени, он сначала обнуляется
+  доля попаданий за окно - сумма по слотам, которые попадают в это окно
+Обнуление слота и запись в него не атомарны вместе: на границе слота несколько событий
+могут потеряться. Для метрики на дашборде это допустимо, зато запись не блокируется.
+*/
+public class SlidingHitRate {
+
+    static final long SLOT_NANOS = Duration.ofSeconds(5).toNanos();
+
+    private final LongSupplier clock;
+    private final int slots;
+    private final AtomicLongArray epochs;
+    private final AtomicLongArray hits;
+    private final AtomicLongArray misses;
+
+    public SlidingHitRate(Duration longestWindow, LongSupplier clock) {
+        this.clock = clock;
+        this.slots = (int) (longestWindow.toNanos() / SLOT_NANOS) + 1;
+        this.epochs = new AtomicLongArray(slots);
+        this.hits = new AtomicLongArray(slots);
+        this.misses = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; i++) {
+            epochs.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    public void recordHits(int count) {
+        add(hits, count);
+    }
+
+    public void recordMisses(int count) {
+        add(misses, count);
+    }
+
+    // Доля попаданий за окно, NaN - если обращений не было (такие значения Micrometer не публикует)
+    public double hitRate(Duration window) {
+        long now = Math.floorDiv(clock.getAsLong(), SLOT_NANOS);
+        long oldest = now - Math.min(slots, Math.max(1, window.toNanos() / SLOT_NANOS)) + 1;
+        long hitSum = 0;
+        long missSum = 0;
+        for (int i = 0; i < slots; i++) {
+            long epoch = epochs.get(i);
+            if (epoch >= oldest && epoch <= now) {
+                hitSum += hits.get(i);
+                missSum += misses.get(i);
+            }
+        }
+        long requests = hitSum + missSum;
+        return requests == 0 ? Double.NaN : (double) hitSum / requests;
+    }
+
+    private void add(AtomicLongArray counts, int count) {
+        long epoch = Math.floorDiv(clock.getAsLong(), SLOT_NANOS);
+        int slot = (int) Math.floorMod(epoch, (long) slots);
+        long seen = epochs.get(slot);
+        if (seen != epoch && epochs.compareAndSet(slot, seen, epoch)) {
+            hits.set(slot, 0);
+            misses.set(slot, 0);
+        }
+        counts.addAndGet(slot, count);
+    }
+}
@@ -1,16 +1,22 @@
 package org.example.cache_caffeine_spring_boot.model;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.*;
+import org.example.cache_caffeine_spring_boot.index.ProductPriceIndexListener;
 
 @Getter
 @Setter
 @ToString(exclude = {"relatedEntities"})  // исключаем связанные сущности
 @EqualsAndHashCode(of = {"id"})  // используем только id для сравнения
 @Entity
+@EntityListeners(ProductPriceIndexListener.class)  // поддерживает индекс цен для getProductsByMinPrice
+@Table(indexes = @Index(name = "idx_product_name_price", columnList = "name, price"))  // для findByNameAndPrice
 public class Product {
 
     /*
@@ -0,0 +1,11 @@
+package org.example.cache_caffeine_spring_boot.model;
+
+/*
+Вторичный ключ продукта: имя + цена.
+Раньше findByNameAndPrice кешировал продукт в кеше "products" под строкой вида "Phone-1000.0".
+Такая строка живет в одном пространстве ключей с id, и ее легко спутать с чужим ключом.
+Типизированный record сравнивается по обоим полям (equals/hashCode генерируются автоматически),
+поэтому совпасть он может только с таким же ProductKey.
+*/
+public record ProductKey(String name, Double price) {
+}
@@ -0,0 +1,9 @@
+package org.example.cache_caffeine_spring_boot.repository;
+
+// Проекция продукта для индекса цен: только id и цена, без загрузки сущности
+public interface ProductPrice {
+
+    Long getId();
+
+    Double getPrice();
+}
@@ -2,8 +2,21 @@ package org.example.cache_caffeine_spring_boot.repository;
 
 import org.example.cache_caffeine_spring_boot.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    // Только id, без загрузки сущностей. Запрос идет по индексу idx_product_name_price (см. Product)
+    @Query("select p.id from Product p where p.name = :name and p.price = :price order by p.id")
+    List<Long> findIdsByNameAndPrice(@Param("name") String name, @Param("price") Double price);
+
+    // Цены всех продуктов для ProductPriceIndex: две колонки вместо целых сущностей.
+    // Продукты без цены в индекс не попадают, поэтому и не читаются
+    @Query("select p.id as id, p.price as price from Product p where p.price is not null")
+    List<ProductPrice> findAllPrices();
 }
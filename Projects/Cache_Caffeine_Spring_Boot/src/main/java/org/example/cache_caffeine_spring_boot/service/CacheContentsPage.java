@@ -0,0 +1,8 @@
+package org.example.cache_caffeine_spring_boot.service;
+
+import java.util.List;
+import java.util.Map;
+
+// Одна страница содержимого кеша. nextCursor == null - это последняя страница
+public record CacheContentsPage(String cacheName, List<Map.Entry<Object, Object>> entries, String nextCursor) {
+}
@@ -0,0 +1,67 @@
+package org.example.cache_caffeine_spring_boot.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+
+/*
+Курсор постраничного обхода содержимого кеша.
+У кеша нет порядка ключей, а порядок обхода asMap() зависит от внутренней хеш-таблицы
+и меняется при ее росте. Поэтому "пропустить первые N записей" между запросами может
+потерять или повторить записи. Вместо этого ключи упорядочены так:
+  1. по hashCode ключа
+  2. по имени класса ключа (Long 1 и String "1" - разные ключи)
+  3. по строковому представлению ключа
+Курсор - это последний отданный ключ в таком виде. Следующая страница - ключи строго после него.
+Порядок не зависит от устройства таблицы, поэтому записи, которые жили в кеше весь обход,
+попадут в выдачу ровно один раз, даже если кеш менялся между запросами.
+Клиенту курсор отдается как непрозрачная строка (Base64 URL-safe).
+*/
+public record CacheCursor(int hash, String type, String key) {
+
+    public static final Comparator<Object> KEY_ORDER = (left, right) -> {
+        int result = Integer.compare(left.hashCode(), right.hashCode());
+        if (result != 0) {
+            return result;
+        }
+        result = left.getClass().getName().compareTo(right.getClass().getName());
+        return result != 0 ? result : String.valueOf(left).compareTo(String.valueOf(right));
+    };
+
+    public static CacheCursor of(Object key) {
+        return new CacheCursor(key.hashCode(), key.getClass().getName(), String.valueOf(key));
+    }
+
+    // Ключ идет строго после курсора. Строка ключа строится, только если хеш и класс совпали
+    public boolean precedes(Object key) {
+        int result = Integer.compare(hash, key.hashCode());
+        if (result == 0) {
+            result = type.compareTo(key.getClass().getName());
+        }
+        if (result == 0) {
+            result = this.key.compareTo(String.valueOf(key));
+        }
+        return result < 0;
+    }
+
+    public String encode() {
+        String raw = hash + ":" + type + ":" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CacheCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int first = raw.indexOf(':');
+            int second = raw.indexOf(':', first + 1);
+            if (first < 0 || second < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new CacheCursor(Integer.parseInt(raw.substring(0, first)),
+                    raw.substring(first + 1, second), raw.substring(second + 1));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException и ошибки Base64 - тоже IllegalArgumentException
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
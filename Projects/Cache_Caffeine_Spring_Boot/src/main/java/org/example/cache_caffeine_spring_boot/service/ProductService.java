@@ -2,28 +2,59 @@ package org.example.cache_caffeine_spring_boot.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.cache_caffeine_spring_boot.config.CaffeineCachesProperties;
+import org.example.cache_caffeine_spring_boot.config.CoalescingCaffeineCache;
+import org.example.cache_caffeine_spring_boot.index.ProductPriceIndex;
 import org.example.cache_caffeine_spring_boot.model.Product;
+import org.example.cache_caffeine_spring_boot.model.ProductKey;
+import org.example.cache_caffeine_spring_boot.repository.ProductPrice;
 import org.example.cache_caffeine_spring_boot.repository.ProductRepository;
+import org.example.cache_caffeine_spring_boot.support.AfterCommit;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ProductService {
 
+    // Больше id за один пакетный запрос не принимаем
+    static final int MAX_BATCH_SIZE = 500;
+
+    // За сколько страниц самое большее проходится весь кеш в getCacheContentsPage
+    public static final int MAX_PAGES_PER_SCAN = 100;
+
+    // По столько продуктов за один запрос в базу загружаются длинные списки в forEachProductByMinPrice
+    static final int STREAM_CHUNK_SIZE = 500;
+
     private final ProductRepository productRepository;
     private final CacheManager cacheManager;
+    private final ProductPriceIndex productPriceIndex;
+    private final CaffeineCachesProperties cachesProperties;
 
     /*
     # в key = "#id" - это часть SpEL (Spring Expression Language), языка выражений Spring.
@@ -44,14 +75,64 @@ public class ProductService {
       // Используем результат метода
       @Cacheable(value = "products", key = "#product.getId()")
     Поэтому # - это обязательный синтаксис SpEL для ссылки на параметры метода или другие объекты в контексте выполнения.
+
+    sync = true меняет то, как Spring обращается к кешу при промахе:
+      без sync: cache.get(key) -> промах -> вызов метода -> cache.put(key, result)
+        Если 10 потоков одновременно промахнулись по одному id, метод (и запрос в базу) выполнится 10 раз
+      с sync: cache.get(key, () -> вызов метода)
+        Кеш сам решает, кто загружает значение: Caffeine выполнит метод один раз, остальные 9 потоков дождутся результата
+    Сколько загрузок так сэкономлено, считает CoalescingCaffeineCacheManager (см. CacheConfig).
+    Ограничение: с sync = true на методе не может быть других кеш-аннотаций и атрибута unless.
     */
     // Пример 1: Простое кеширование результата метода
-    @Cacheable(value = "products", key = "#id")
+    @Cacheable(value = "products", key = "#id", sync = true)
     public Optional<Product> getProductById(Long id) {
         log.info("Fetching product with id: {}", id);
         return productRepository.findById(id);
     }
 
+    /*
+    Пакетное получение продуктов по списку id (страница корзины, список товаров).
+    Вместо N вызовов getProductById (N походов в кеш и до N запросов в базу):
+      getAll у нативного кеша Caffeine за один проход берет из кеша все id, которые там есть
+      для остальных id Caffeine один раз вызывает функцию загрузки со всем набором промахов
+      функция загрузки делает один запрос findAllById и возвращает найденные продукты
+      все загруженное сразу попадает в кеш "products", поэтому следующий getProductById - это попадание
+    Id, которых нет в базе, кешируются как NullValue - так же, как @Cacheable кеширует пустой Optional
+    из getProductById, поэтому повторный запрос несуществующего id тоже не идет в базу.
+    Почему не cache.get(id) из Spring Cache API: для кеша с загрузчиком (refresh-after-write у products)
+    он на каждый промах вызывает загрузчик отдельно, и пакетной загрузки не получится.
+    Результат - в порядке запроса, без повторов и без несуществующих id.
+    */
+    // Пример 1.1: Пакетное чтение с учетом кеша
+    public List<Product> getProductsByIds(Collection<Long> ids) {
+        Set<Long> distinctIds = ids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (distinctIds.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Too many ids: " + distinctIds.size() + " (max " + MAX_BATCH_SIZE + ")");
+        }
+        log.info("Fetching {} products by ids", distinctIds.size());
+
+        var products = ((CaffeineCache) cache("products")).getNativeCache();
+        Map<Object, Object> found = products.getAll(distinctIds, this::loadProducts);
+        return distinctIds.stream()
+                .map(found::get)
+                .filter(Product.class::isInstance)
+                .map(Product.class::cast)
+                .toList();
+    }
+
+    // Функция пакетной загрузки для getAll: один запрос на все промахи, отсутствующие id -> NullValue
+    private Map<Object, Object> loadProducts(Set<?> missingIds) {
+        List<Long> ids = missingIds.stream().map(Long.class::cast).toList();
+        log.info("Loading {} products missing from cache", ids.size());
+        Map<Object, Object> loaded = new HashMap<>();
+        productRepository.findAllById(ids).forEach(product -> loaded.put(product.getId(), product));
+        ids.forEach(id -> loaded.putIfAbsent(id, NullValue.INSTANCE));
+        return loaded;
+    }
+
     /*
     Это работает так:
       Когда кто-то запрашивает продукты с минимальной ценой:
@@ -76,17 +157,99 @@ public class ProductService {
       Не кешировать некорректные запросы
       Экономить память кеша
       Всегда получать актуальные данные для некорректных запросов
-    В данном случае ключ не указан явно, поэтому Spring использует значение параметра minPrice как ключ по умолчанию.
+    Ключ кеша - не сам minPrice, а ближайшая цена в индексе, которая >= minPrice (см. ProductPriceIndex.cacheKey).
+    Запросы 150, 180 и 199.99 при ценах в базе 100 и 200 возвращают один и тот же список,
+    поэтому и кешируются под одним ключом 200, а не тремя почти одинаковыми записями.
+    Сам метод не читает всю таблицу: индекс цен отдает id подходящих продуктов за O(log n + k),
+    а продукты загружаются из базы по первичному ключу через findAllById.
+    Раньше здесь был @Cacheable(value = "productList", key = "@productPriceIndex.cacheKey(#minPrice)",
+    condition = "#minPrice > 0", sync = true), а список строился по самому minPrice:
+      ключ (SpEL) и список (тело метода) вычислялись в разные моменты
+      если между ними в индекс попадал продукт с ценой между minPrice и ключом,
+      он оказывался в списке под ключом выше своей цены
+      createProduct удаляет только ключи <= цены нового продукта, и такая запись оставалась в кеше
+    Теперь ключ вычисляется один раз, и список строится от самого ключа: idsWithMinPrice(key).
+    Так каждая запись кеша - это ровно "продукты с ценой >= ключа", независимо от того, какой minPrice ее создал.
+    Условие "#minPrice > 0" осталось тем же, плюс длинные списки (больше cache.max-cached-list-size) не кешируются.
+    Кеш используется через Cache API: get(key, loader) так же, как sync = true,
+    выполняет одну загрузку на одновременные промахи по ключу (см. Пример 1).
     */
     // Пример 2: Кеширование списка с условием
-    @Cacheable(value = "productList", condition = "#minPrice > 0")
     public List<Product> getProductsByMinPrice(Double minPrice) {
         log.info("Fetching products with min price: {}", minPrice);
-        return productRepository.findAll().stream()
-                .filter(product -> product.getPrice() >= minPrice)
+        if (minPrice > 0 && fitsInListCache(minPrice)) {
+            return cachedPriceList(minPrice);
+        }
+        return loadInIndexOrder(productPriceIndex.idsWithMinPrice(minPrice));
+    }
+
+    // Список из кеша productList: ключ вычисляется один раз, и по нему же строится список
+    private List<Product> cachedPriceList(double minPrice) {
+        Double key = productPriceIndex.cacheKey(minPrice);
+        return cache("productList").get(key, () -> loadInIndexOrder(productPriceIndex.idsWithMinPrice(key)));
+    }
+
+    /*
+    Потоковая выдача продуктов с минимальной ценой для больших каталогов (см. ProductController).
+    getProductsByMinPrice собирает весь список в памяти и держит его в кеше, а здесь:
+      короткий список (не больше cache.max-cached-list-size) берется из кеша productList под тем же ключом,
+        что и у getProductsByMinPrice, и при промахе загружается один раз через get(key, loader)
+      длинный список в кеш не кладется: id читаются из индекса лениво, продукты загружаются из базы
+        порциями по STREAM_CHUNK_SIZE через findAllById и сразу отдаются в action
+    В памяти одновременно только одна порция, сколько бы продуктов ни подошло.
+    */
+    public void forEachProductByMinPrice(Double minPrice, Consumer<Product> action) {
+        if (minPrice > 0 && fitsInListCache(minPrice)) {
+            cachedPriceList(minPrice).forEach(action);
+            return;
+        }
+        log.info("Streaming products with min price: {}", minPrice);
+        List<Long> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+        productPriceIndex.streamIdsWithMinPrice(minPrice).forEach(id -> {
+            chunk.add(id);
+            if (chunk.size() == STREAM_CHUNK_SIZE) {
+                loadInIndexOrder(chunk).forEach(action);
+                chunk.clear();
+            }
+        });
+        loadInIndexOrder(chunk).forEach(action);
+    }
+
+    // Помещается ли список для minPrice в кеш productList (см. CaffeineCachesProperties.maxCachedListSize)
+    public boolean fitsInListCache(Double minPrice) {
+        int limit = cachesProperties.getMaxCachedListSize();
+        return productPriceIndex.countWithMinPrice(minPrice, limit) <= limit;
+    }
+
+    // Один findAllById на все ids, результат в порядке ids (по возрастанию цены) - findAllById порядок не гарантирует
+    private List<Product> loadInIndexOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> productsById = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
                 .toList();
     }
 
+    /*
+    Индекс цен живет в памяти, поэтому после старта приложения его нужно заполнить из базы.
+    Дальше его поддерживает ProductPriceIndexListener при каждой записи продукта.
+    Из базы читаются только id и цена (findAllPrices), а не все сущности целиком.
+    Tomcat принимает запросы еще до ApplicationReadyEvent, и запрос до подмены индекса мог
+    закешировать в productList неполный список под настоящим ключом цены на весь TTL.
+    Поэтому после подмены productList очищается.
+    */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildPriceIndex() {
+        productPriceIndex.rebuild(() -> productRepository.findAllPrices().stream()
+                .collect(Collectors.toMap(ProductPrice::getId, ProductPrice::getPrice)));
+        cache("productList").clear();
+        log.info("Price index rebuilt with {} products", productPriceIndex.size());
+    }
+
     /*
     @CachePut - это аннотация, которая:
       Всегда выполняет метод
@@ -128,11 +291,17 @@ public class ProductService {
       Очищать кеш при ошибках
     */
     // Пример 3: Обновление кеша при изменении данных
+    // Цена могла измениться, поэтому закешированные списки по цене тоже сбрасываются - после коммита,
+    // как в createProduct: @CacheEvict сработал бы до коммита, пока индекс цен еще старый,
+    // и параллельный запрос успел бы снова закешировать список по старым ценам
     @CachePut(value = "products", key = "#product.id")
     @Transactional //В этом примере избыточна, но в реальной работе надо использовать
     public Product updateProduct(Product product) {
         log.info("Updating product: {}", product);
-        return productRepository.save(product);
+        // flush сразу выполняет UPDATE: слушатель сущности регистрирует обновление индекса раньше нашей очистки
+        Product saved = productRepository.saveAndFlush(product);
+        AfterCommit.run(this::evictAllPriceLists);
+        return saved;
     }
 
     /*
@@ -154,94 +323,119 @@ public class ProductService {
         Поддержания согласованности данных
     */
     // Пример 4: Очистка кеша при удалении
+    // Списки по цене, где продукт мог быть, сбрасываются после коммита (см. updateProduct)
     @CacheEvict(value = "products", key = "#id")
     @Transactional //В этом примере избыточна, но в реальной работе надо использовать
     public void deleteProduct(Long id) {
         log.info("Deleting product with id: {}", id);
         productRepository.deleteById(id);
+        productRepository.flush();
+        AfterCommit.run(this::evictAllPriceLists);
+    }
+
+    private void evictAllPriceLists() {
+        cache("productList").clear();
     }
 
     /*
-    @CacheEvict здесь работает так:
-      value = {"products", "productList"} - очищает два кеша:
-        Кеш "products" (где хранятся отдельные продукты)
-        Кеш "productList" (где хранятся списки продуктов)
-      allEntries = true - очищает ВСЕ записи в этих кешах, а не только по конкретному ключу
+    Раньше здесь был @CacheEvict(value = {"products", "productList"}, allEntries = true):
+      каждая вставка очищала ВСЕ записи обоих кешей
+      следующая волна чтений шла в базу, и при частых вставках доля попаданий падала почти до нуля
+    Теперь инвалидация точечная:
+      @CachePut(value = "products", key = "#result.id")
+        #result - это значение, которое вернул метод (сохраненный продукт с уже присвоенным id)
+        До выполнения метода id еще нет (его генерирует база), поэтому #product.id здесь не подходит
+        Новый продукт сразу кладется в кеш, остальные продукты в кеше не трогаются
+      evictPriceListsUpTo(цена нового продукта)
+        Ключ кеша "productList" - ближайшая цена в индексе, которая >= minPrice (см. getProductsByMinPrice)
+        Новый продукт с ценой P попадает только в ответы на запросы с minPrice <= P,
+        а все такие запросы хранятся под ключами <= P. Их и удаляем
+        Записи с ключом > P остаются верными: запросы с minPrice <= P теперь найдут ключ P,
+        а под старым ключом остаются только запросы с minPrice > P, которым новый продукт не нужен
     Пример работы:
-      // Предположим, в кешах есть данные:
-      // products: {1: product1, 2: product2}
-      // productList: {100: [product1, product2], 200: [product2]}
-
-      createProduct(newProduct)
-      // 1. Сохраняется новый продукт в базу
-      // 2. Очищается весь кеш "products"
-      // 3. Очищается весь кеш "productList"
-    Почему так:
-      При создании нового продукта:
-        Меняется список всех продуктов
-        Меняются все фильтрованные списки
-        Поэтому нужно очистить все кеши
-      При следующем запросе:
-        Кеши будут пусты
-        Данные будут заново загружены из базы
-        Кеши будут содержать актуальные данные
-
-    Хотя можно написать так:
-      @CachePut(value = "products", key = "#product.id")
-      @CacheEvict(value = "productList", allEntries = true)
-      public Product createProduct(Product product) {
-        log.info("Creating new product: {}", product);
-        return productRepository.save(product);
-      }
-    В Spring можно использовать несколько аннотаций кеширования на одном методе.
-    Это работает так:
-      Сначала выполняются все @CacheEvict
-      Затем выполняется метод
-      После успешного выполнения метода выполняются все @CachePut
-    В нашем случае:
-      Очищается кеш "productList"
-      Сохраняется продукт в базу
-      Новый продукт добавляется в кеш "products"
-    Поэтому такой подход:
-      Полностью поддерживается Spring
-      Является хорошей практикой
-      Позволяет гибко управлять кешем
-    И порядок выполнения именно такой:
-      Сначала @CacheEvict
-      Затем выполнение метода
-      Потом @CachePut
+      // productList: {100.0: [p100, p200], 200.0: [p200], Infinity: []}
+      createProduct(p150)
+      // products: добавлен p150 по его id
+      // productList: {200.0: [p200], Infinity: []} - удален только ключ 100.0
+    Удаление выполняется после коммита транзакции, когда слушатель сущности уже добавил цену в индекс.
+    Иначе параллельный запрос мог бы между очисткой и коммитом снова закешировать список без нового продукта.
     */
-    // Пример 5: Очистка всех кешей при создании нового продукта
-    @CacheEvict(value = {"products", "productList"}, allEntries = true)
+    // Пример 5: Точечное обновление кешей при создании нового продукта
+    @CachePut(value = "products", key = "#result.id")
     @Transactional //В этом примере избыточна, но в реальной работе надо использовать
     public Product createProduct(Product product) {
         log.info("Creating new product: {}", product);
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        Double price = saved.getPrice();
+        if (price != null) {
+            AfterCommit.run(() -> evictPriceListsUpTo(price));
+        }
+        return saved;
+    }
+
+    // Удаляет из "productList" записи, ключ которых (ближайшая цена) не больше price
+    private void evictPriceListsUpTo(double price) {
+        Cache productList = cache("productList");
+        if (productList instanceof CaffeineCache caffeineCache) {
+            caffeineCache.getNativeCache().asMap().keySet()
+                    .removeIf(key -> key instanceof Double keyPrice && keyPrice <= price);
+        } else {
+            productList.clear();
+        }
     }
 
     /*
-    Работает так:
-      При первом вызове с конкретными параметрами (например, name="Phone", price=1000):
-      Создается ключ кеша: "Phone-1000"
-      Проверяется кеш по этому ключу
-      В кеше ничего нет
-      Выполняется метод
-      Результат сохраняется в кеш
-    При следующем вызове с теми же параметрами:
-      Создается тот же ключ: "Phone-1000"
-      Проверяется кеш
-      Данные есть в кеше
-      Метод НЕ выполняется
-      Возвращаются данные из кеша
-    Если параметры разные - будет новый ключ кеша
+    Поиск по вторичному ключу (имя + цена) в два шага:
+      1. Кеш "productKeys" хранит ProductKey -> id продукта.
+         При промахе id ищется запросом findIdsByNameAndPrice по индексу (name, price), без findAll()
+      2. По id продукт берется из обычного кеша "products" - того же, что заполняет getProductById
+    Так в кеше лежит одна копия продукта (по id), а вторичный ключ хранит только ссылку на нее.
+    Раньше здесь был @Cacheable(value = "products", key = "#name + '-' + #price"):
+      полный проход по таблице при промахе
+      вторая копия продукта в кеше
+      строковые ключи вперемешку с id в одном кеше
+    Аннотации тут не подходят: вызов getProductById изнутри сервиса идет мимо прокси Spring,
+    поэтому с кешами работаем программно через Cache API.
+    Запись в "productKeys" может устареть (продукт переименовали, изменили цену или удалили).
+    Поэтому найденный по id продукт сверяется с ключом, и если он уже не подходит,
+    запись вторичного ключа удаляется и id ищется заново.
+    Отсутствие продукта не кешируется: только что созданный продукт сразу находится.
     */
-    // Пример 6: Кеширование с использованием SpEL
-    @Cacheable(value = "products", key = "#name + '-' + #price")
+    // Пример 6: Вторичный ключ, который ссылается на запись кеша по id
     public Optional<Product> findByNameAndPrice(String name, Double price) {
         log.info("Finding product by name: {} and price: {}", name, price);
-        return productRepository.findAll().stream()
-                .filter(p -> p.getName().equals(name) && p.getPrice().equals(price))
-                .findFirst();
+        ProductKey key = new ProductKey(name, price);
+        Cache keyCache = cache("productKeys");
+
+        Long cachedId = keyCache.get(key, Long.class);
+        if (cachedId != null) {
+            Product product = getCachedProduct(cachedId);
+            if (product != null && matches(product, key)) {
+                return Optional.of(product);
+            }
+            keyCache.evict(key);
+        }
+
+        List<Long> ids = productRepository.findIdsByNameAndPrice(name, price);
+        if (ids.isEmpty()) {
+            return Optional.empty();
+        }
+        Long id = ids.get(0);
+        keyCache.put(key, id);
+        return Optional.ofNullable(getCachedProduct(id));
+    }
+
+    // То же, что делает @Cacheable на getProductById: Optional разворачивается, пустой результат хранится как null
+    private Product getCachedProduct(Long id) {
+        return cache("products").get(id, () -> productRepository.findById(id).orElse(null));
+    }
+
+    private static boolean matches(Product product, ProductKey key) {
+        return Objects.equals(product.getName(), key.name()) && Objects.equals(product.getPrice(), key.price());
+    }
+
+    private Cache cache(String cacheName) {
+        return Objects.requireNonNull(cacheManager.getCache(cacheName));
     }
 
     /*
@@ -266,7 +460,7 @@ public class ProductService {
      */
     public void clearCache(String cacheName) {
         log.info("Clearing cache: {}", cacheName);
-        Objects.requireNonNull(cacheManager.getCache(cacheName)).clear();
+        existingCache(cacheName).clear();
     }
 
     /**
@@ -278,13 +472,19 @@ public class ProductService {
     }
 
     /**
-     * Программно получает значение из кеша
+     * Программно получает значение из кеша (null - значения в кеше нет).
+     * Только смотрит в кеш: для кеша с загрузчиком (products, см. CacheConfig) Spring-овый get(key)
+     * при промахе загрузил бы значение из базы, поэтому Caffeine читается напрямую и без учета в статистике
      */
     public Object getFromCache(String cacheName, Object key) {
         log.info("Getting value from cache: {} with key: {}", cacheName, key);
-        return Objects.requireNonNull(cacheManager.getCache(cacheName))
-                .get(key)
-                .get();
+        Cache cache = Objects.requireNonNull(cacheManager.getCache(cacheName));
+        if (cache instanceof CaffeineCache caffeineCache) {
+            Object value = caffeineCache.getNativeCache().policy().getIfPresentQuietly(key);
+            return value instanceof NullValue ? null : value;
+        }
+        Cache.ValueWrapper wrapper = cache.get(key);
+        return wrapper != null ? wrapper.get() : null;
     }
 
     /**
@@ -292,7 +492,7 @@ public class ProductService {
      */
     public void evictFromCache(String cacheName, Object key) {
         log.info("Evicting from cache: {} with key: {}", cacheName, key);
-        Objects.requireNonNull(cacheManager.getCache(cacheName)).evict(key);
+        existingCache(cacheName).evict(key);
     }
 
     /**
@@ -304,34 +504,66 @@ public class ProductService {
 
 
     /*
-    Метод для получения всех значений из кеша. В Spring Cache API нет прямого метода для получения всех значений,
-    но мы можем это реализовать через Caffeine Cache:
+    Постраничный обход кеша для эндпоинта /cache/{cacheName}/contents (вместо прежней выдачи asMap() целиком,
+    которую Jackson сериализовал одним ответом). За один запрос собирается одна страница:
+      обход asMap() идет по живому представлению кеша, без копии всей карты
+      записи до курсора пропускаются (порядок ключей описан в CacheCursor)
+      из остальных в куче размера pageSize остаются pageSize наименьших по этому порядку
+    Память - O(pageSize), время - O(n log pageSize) на страницу: упорядоченного по ключам индекса у кеша нет,
+    и каждая страница заново просматривает все n записей. Полный обход кеша стоил бы O(n^2 / pageSize),
+    поэтому размер страницы не меньше n / MAX_PAGES_PER_SCAN: весь кеш проходится не больше чем
+    за MAX_PAGES_PER_SCAN страниц, то есть за O(MAX_PAGES_PER_SCAN * n). На большом кеше страница
+    может оказаться больше запрошенной; клиент все равно идет по nextCursor.
+    Имя проверяется по getCacheNames(): менеджер кешей динамический, и getCache создал бы новый кеш
+    под любое имя из URL.
     */
+    public CacheContentsPage getCacheContentsPage(String cacheName, String cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        var nativeCache = ((CaffeineCache) existingCache(cacheName)).getNativeCache();
+        int effectivePageSize = (int) Math.max(pageSize,
+                Math.min(Integer.MAX_VALUE - 1, ceilDiv(nativeCache.estimatedSize(), MAX_PAGES_PER_SCAN)));
+        CacheCursor after = cursor == null || cursor.isEmpty() ? null : CacheCursor.decode(cursor);
 
-    /**
-     * Получает все значения из указанного кеша
-     * @param cacheName имя кеша
-     * @return Map с ключами и значениями из кеша
-     */
-    public Map<Object, Object> getCacheContents(String cacheName) {
-        log.info("Getting all values from cache: {}", cacheName);
+        // Куча с наибольшим ключом наверху: при переполнении выбрасываем его
+        PriorityQueue<Map.Entry<Object, Object>> page = new PriorityQueue<>(
+                effectivePageSize + 1, Map.Entry.comparingByKey(CacheCursor.KEY_ORDER.reversed()));
+        nativeCache.asMap().forEach((key, value) -> {
+            if (after == null || after.precedes(key)) {
+                page.offer(Map.entry(key, value));
+                if (page.size() > effectivePageSize) {
+                    page.poll();
+                }
+            }
+        });
 
-        var springCache = cacheManager.getCache(cacheName);
-        if (springCache == null) {
-            throw new IllegalArgumentException("Cache '" + cacheName + "' not found");
-        }
+        List<Map.Entry<Object, Object>> entries = new ArrayList<>(page);
+        entries.sort(Map.Entry.comparingByKey(CacheCursor.KEY_ORDER));
+        String nextCursor = entries.size() < effectivePageSize
+                ? null
+                : CacheCursor.of(entries.get(entries.size() - 1).getKey()).encode();
+        return new CacheContentsPage(cacheName, entries, nextCursor);
+    }
 
-        // Получаем нативный Caffeine кеш
-        var caffeineCache = ((CaffeineCache) springCache).getNativeCache();
-        return caffeineCache.asMap();
+    private static long ceilDiv(long value, int divisor) {
+        return (value + divisor - 1) / divisor;
     }
 
+    // Уже существующий кеш. Неизвестное имя - ошибка клиента, новый кеш под него не создается:
+    // имена в эндпоинтах /cache/{cacheName}/... приходят из URL
+    private Cache existingCache(String cacheName) {
+        if (!cacheManager.getCacheNames().contains(cacheName)) {
+            throw new IllegalArgumentException("Cache '" + cacheName + "' not found");
+        }
+        return Objects.requireNonNull(cacheManager.getCache(cacheName));
+    }
 
     /*
     Важные моменты:
-      Мы используем нативный Caffeine кеш для получения всех значений,
+      Мы используем нативный Caffeine кеш для обхода значений (getCacheContentsPage),
       так как Spring Cache API не предоставляет такой функциональности
-      Метод asMap() возвращает неизменяемую копию содержимого кеша
+      Метод asMap() возвращает живое представление кеша, а не копию: поэтому содержимое отдается страницами
       Статистика кеша помогает понять, насколько эффективно работает кеширование.
     Этот метод особенно полезен для:
       Отладки
@@ -348,19 +580,20 @@ public class ProductService {
     public Map<String, Object> getCacheStats(String cacheName) {
         log.info("Getting stats for cache: {}", cacheName);
 
-        var springCache = cacheManager.getCache(cacheName);
-        if (springCache == null) {
-            throw new IllegalArgumentException("Cache '" + cacheName + "' not found");
-        }
+        var springCache = existingCache(cacheName);
 
         var caffeineCache = ((CaffeineCache) springCache).getNativeCache();
         var stats = caffeineCache.stats();
 
-        return Map.of(
-                "hitCount", stats.hitCount(),
-                "missCount", stats.missCount(),
-                "evictionCount", stats.evictionCount(),
-                "estimatedSize", caffeineCache.estimatedSize()
-        );
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("estimatedSize", caffeineCache.estimatedSize());
+        // Есть только у кешей CoalescingCaffeineCacheManager: сколько повторных загрузок подавлено
+        if (springCache instanceof CoalescingCaffeineCache coalescingCache) {
+            result.put("suppressedLoadCount", coalescingCache.getSuppressedLoadCount());
+        }
+        return result;
     }
 }
@@ -0,0 +1,29 @@
+package org.example.cache_caffeine_spring_boot.support;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+Откладывает действие до успешного коммита текущей транзакции.
+Если транзакции нет, действие выполняется сразу.
+Действия выполняются в порядке регистрации: например, индекс цен, который обновляет слушатель сущности
+при сохранении, обновится раньше, чем сервис после save() сбросит зависящие от него записи кеша.
+*/
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.cache_caffeine_spring_boot.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescingCaffeineCacheManagerTest {
+
+    private CoalescingCaffeineCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new CoalescingCaffeineCacheManager();
+    }
+
+    @Test
+    void getCache_ShouldReturnCoalescingCache() {
+        assertInstanceOf(CoalescingCaffeineCache.class, cacheManager.getCache("products"));
+    }
+
+    @Test
+    void concurrentMisses_ShouldRunOneLoad() throws Exception {
+        // Arrange: первая загрузка держится, пока не отпустим latch
+        Cache cache = cacheManager.getCache("products");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> cache.get(1L, () -> {
+            loads.incrementAndGet();
+            loadStarted.countDown();
+            releaseLoad.await();
+            return "product";
+        }));
+        assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+
+        // Act: второй поток промахивается по тому же ключу, пока загрузка идет
+        AtomicReference<String> second = new AtomicReference<>();
+        Thread waiter = new Thread(() -> second.set(cache.get(1L, () -> {
+            loads.incrementAndGet();
+            return "duplicate";
+        })));
+        waiter.start();
+        awaitBlocked(waiter);
+        releaseLoad.countDown();
+        waiter.join(5000);
+
+        // Assert
+        assertEquals("product", first.get(5, TimeUnit.SECONDS));
+        assertEquals("product", second.get());
+        assertEquals(1, loads.get());
+        assertEquals(1, cacheManager.getSuppressedLoadCount());
+    }
+
+    @Test
+    void hit_ShouldNotCountAsSuppressedLoad() {
+        // Arrange
+        Cache cache = cacheManager.getCache("products");
+        cache.put(1L, "product");
+
+        // Act
+        String value = cache.get(1L, () -> "loaded");
+
+        // Assert
+        assertEquals("product", value);
+        assertEquals(0, cacheManager.getSuppressedLoadCount());
+    }
+
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.BLOCKED && thread.getState() != Thread.State.WAITING) {
+            assertTrue(System.nanoTime() < deadline, "Второй поток должен ждать идущую загрузку");
+            Thread.sleep(10);
+        }
+    }
+}
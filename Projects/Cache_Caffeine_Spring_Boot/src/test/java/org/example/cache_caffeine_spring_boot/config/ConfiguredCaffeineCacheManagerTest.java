@@ -0,0 +1,122 @@
+package org.example.cache_caffeine_spring_boot.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfiguredCaffeineCacheManagerTest {
+
+    private ConfiguredCaffeineCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        CacheSpec products = new CacheSpec();
+        products.setMaximumSize(1000L);
+        products.setExpireAfterWrite(Duration.ofMinutes(30));
+        products.setRecordStats(true);
+
+        CacheSpec productList = new CacheSpec();
+        productList.setMaximumWeight(10L);
+
+        CacheSpec defaultSpec = new CacheSpec();
+        defaultSpec.setMaximumSize(50L);
+
+        cacheManager = new ConfiguredCaffeineCacheManager();
+        cacheManager.setCacheSpecs(defaultSpec, Map.of("products", products, "productList", productList));
+    }
+
+    @Test
+    void namedCache_ShouldUseItsOwnSpec() {
+        Cache<Object, Object> products = nativeCache("products");
+
+        assertEquals(1000L, products.policy().eviction().orElseThrow().getMaximum());
+        assertEquals(Duration.ofMinutes(30), products.policy().expireAfterWrite().orElseThrow().getExpiresAfter());
+        assertTrue(products.policy().isRecordingStats());
+    }
+
+    @Test
+    void unknownCache_ShouldFallBackToDefaultSpec() {
+        Cache<Object, Object> other = nativeCache("other");
+
+        assertEquals(50L, other.policy().eviction().orElseThrow().getMaximum());
+        assertTrue(other.policy().expireAfterWrite().isEmpty());
+        assertFalse(other.policy().isRecordingStats());
+    }
+
+    @Test
+    void metrics_ShouldBeCreatedOnlyForDeclaredCaches() {
+        // Arrange: статистику пишет и настройка по умолчанию
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CacheSpec products = new CacheSpec();
+        products.setRecordStats(true);
+        CacheSpec defaultSpec = new CacheSpec();
+        defaultSpec.setRecordStats(true);
+        cacheManager.setCacheSpecs(defaultSpec, Map.of("products", products));
+        cacheManager.setMeterRegistry(registry);
+
+        // Act: кеш из specs и кеш с произвольным именем, например из URL
+        nativeCache("products");
+        Cache<Object, Object> fromUrl = nativeCache("anything-from-url");
+
+        // Assert: метрики только у объявленного кеша, статистика Caffeine есть у обоих
+        assertEquals(Set.of("products"), cacheManager.getCacheMetrics().keySet());
+        assertTrue(registry.getMeters().stream().noneMatch(meter -> "anything-from-url".equals(meter.getId().getTag("cache"))));
+        assertTrue(fromUrl.policy().isRecordingStats());
+    }
+
+    @Test
+    void weightedCache_ShouldWeighListsBySize() {
+        Cache<Object, Object> productList = nativeCache("productList");
+
+        // Act
+        productList.put(100.0, List.of(1L, 2L, 3L));
+        productList.put(Double.POSITIVE_INFINITY, List.of());
+        // Вес обновляется в фоновом обслуживании кеша - выполняем его сразу
+        productList.cleanUp();
+
+        // Assert: список из трех элементов весит 3, пустой - 1
+        assertTrue(productList.policy().eviction().orElseThrow().isWeighted());
+        assertEquals(4L, productList.policy().eviction().orElseThrow().weightedSize().orElseThrow());
+    }
+
+    @Test
+    void refreshAfterWrite_ShouldUseRegisteredLoader() {
+        // Arrange
+        CacheSpec refreshed = new CacheSpec();
+        refreshed.setRefreshAfterWrite(Duration.ofMinutes(5));
+        cacheManager.setCacheSpecs(null, Map.of("products", refreshed));
+        cacheManager.registerRefreshLoader("products", key -> "loaded-" + key);
+
+        // Act
+        Cache<Object, Object> products = nativeCache("products");
+
+        // Assert
+        assertInstanceOf(LoadingCache.class, products);
+        assertEquals("loaded-1", ((LoadingCache<Object, Object>) products).get(1L));
+    }
+
+    @Test
+    void refreshAfterWrite_WithoutLoader_ShouldFail() {
+        // Arrange
+        CacheSpec refreshed = new CacheSpec();
+        refreshed.setRefreshAfterWrite(Duration.ofMinutes(5));
+        cacheManager.setCacheSpecs(null, Map.of("productList", refreshed));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> cacheManager.getCache("productList"));
+    }
+
+    private Cache<Object, Object> nativeCache(String name) {
+        return ((CaffeineCache) cacheManager.getCache(name)).getNativeCache();
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.cache_caffeine_spring_boot.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.cache_caffeine_spring_boot.model.Product;
+import org.example.cache_caffeine_spring_boot.service.CacheContentsPage;
+import org.example.cache_caffeine_spring_boot.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class ProductControllerTest {
+
+    private ProductService productService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        productService = mock(ProductService.class);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new ProductController(productService, new ObjectMapper()))
+                .build();
+    }
+
+    @Test
+    void getCacheContents_ShouldStreamPage() throws Exception {
+        // Arrange
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Test Product");
+        CacheContentsPage page = new CacheContentsPage("products",
+                List.of(Map.entry(1L, product), Map.entry(2L, NullValue.INSTANCE)), "next");
+        when(productService.getCacheContentsPage("products", "abc", 2)).thenReturn(page);
+
+        // Act: StreamingResponseBody пишется асинхронно, поэтому ответ забираем через asyncDispatch
+        MvcResult result = mockMvc.perform(get("/api/products/cache/products/contents")
+                        .param("cursor", "abc")
+                        .param("limit", "2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cacheName").value("products"))
+                .andExpect(jsonPath("$.entries[0].key").value(1))
+                .andExpect(jsonPath("$.entries[0].value.name").value("Test Product"))
+                .andExpect(jsonPath("$.entries[1].value").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void getProductsByMinPrice_ShouldStreamJsonArray() throws Exception {
+        // Arrange: сервис отдает продукты по одному в переданный Consumer
+        Product first = new Product();
+        first.setId(1L);
+        first.setPrice(100.0);
+        Product second = new Product();
+        second.setId(2L);
+        second.setPrice(200.0);
+        doAnswer(invocation -> {
+            Consumer<Product> action = invocation.getArgument(1);
+            action.accept(first);
+            action.accept(second);
+            return null;
+        }).when(productService).forEachProductByMinPrice(eq(50.0), any());
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/products/price/50.0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].price").value(100.0))
+                .andExpect(jsonPath("$[1].id").value(2));
+    }
+
+    @Test
+    void getCacheContents_ShouldCapPageSize() throws Exception {
+        // Arrange
+        when(productService.getCacheContentsPage("products", null, 1000))
+                .thenReturn(new CacheContentsPage("products", List.of(), null));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/products/cache/products/contents").param("limit", "1000000"))
+                .andExpect(request().asyncStarted());
+        verify(productService).getCacheContentsPage("products", null, 1000);
+    }
+
+    @Test
+    void getCacheContents_ShouldRejectBadCursor() throws Exception {
+        // Arrange
+        when(productService.getCacheContentsPage("products", "bad", 100))
+                .thenThrow(new IllegalArgumentException("Invalid cursor: bad"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/products/cache/products/contents").param("cursor", "bad"))
+                .andExpect(status().isBadRequest());
+    }
+}
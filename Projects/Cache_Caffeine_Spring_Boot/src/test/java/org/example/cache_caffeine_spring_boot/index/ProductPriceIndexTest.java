@@ -0,0 +1,90 @@
+package org.example.cache_caffeine_spring_boot.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductPriceIndexTest {
+
+    private ProductPriceIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductPriceIndex();
+        index.put(1L, 100.0);
+        index.put(2L, 200.0);
+        index.put(3L, 300.0);
+    }
+
+    @Test
+    void idsWithMinPrice_ShouldReturnTailInPriceOrder() {
+        assertEquals(List.of(2L, 3L), index.idsWithMinPrice(150.0));
+        assertEquals(List.of(1L, 2L, 3L), index.idsWithMinPrice(100.0));
+        assertTrue(index.idsWithMinPrice(301.0).isEmpty());
+    }
+
+    @Test
+    void put_ShouldMoveProductToNewPrice() {
+        // Act
+        index.put(1L, 250.0);
+
+        // Assert
+        assertEquals(List.of(2L, 1L, 3L), index.idsWithMinPrice(150.0));
+        assertEquals(200.0, index.cacheKey(100.0));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void remove_ShouldDropProductAndEmptyPrice() {
+        // Act
+        index.remove(2L);
+        index.put(3L, null);
+
+        // Assert
+        assertEquals(List.of(1L), index.idsWithMinPrice(0.0));
+        assertEquals(Double.POSITIVE_INFINITY, index.cacheKey(150.0));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void rebuild_ShouldReplaceIndexAndKeepConcurrentChanges() {
+        // Act: снимок из базы прочитан до того, как закоммитились изменения продуктов 1 и 2
+        index.rebuild(() -> {
+            index.put(1L, 500.0);
+            index.remove(2L);
+            // Пока новые карты не подменены, читатели видят старый индекс (с изменениями), а не пустой
+            assertEquals(List.of(3L, 1L), index.idsWithMinPrice(0.0));
+            return Map.of(1L, 100.0, 2L, 200.0, 4L, 400.0);
+        });
+
+        // Assert: продукта 3 нет в снимке, изменения 1 и 2 применены поверх снимка
+        assertEquals(List.of(4L, 1L), index.idsWithMinPrice(0.0));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void streamIdsWithMinPrice_ShouldMatchList() {
+        assertEquals(index.idsWithMinPrice(150.0), index.streamIdsWithMinPrice(150.0).toList());
+        assertEquals(0, index.streamIdsWithMinPrice(301.0).count());
+    }
+
+    @Test
+    void countWithMinPrice_ShouldStopAfterLimit() {
+        assertEquals(2, index.countWithMinPrice(150.0, 5));
+        assertEquals(2, index.countWithMinPrice(150.0, 2));
+        assertEquals(2, index.countWithMinPrice(0.0, 1));
+        assertEquals(0, index.countWithMinPrice(301.0, 1));
+    }
+
+    @Test
+    void cacheKey_ShouldShareEntryBetweenNearbyPrices() {
+        assertEquals(200.0, index.cacheKey(150.0));
+        assertEquals(200.0, index.cacheKey(199.99));
+        assertEquals(200.0, index.cacheKey(200.0));
+        assertEquals(300.0, index.cacheKey(200.01));
+    }
+}
@@ -1,20 +1,32 @@
 package org.example.cache_caffeine_spring_boot.integration;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import org.example.cache_caffeine_spring_boot.metrics.CacheMetricsSnapshot;
+import org.example.cache_caffeine_spring_boot.metrics.CacheStatsEndpoint;
 import org.example.cache_caffeine_spring_boot.model.Product;
+import org.example.cache_caffeine_spring_boot.model.ProductKey;
 import org.example.cache_caffeine_spring_boot.repository.ProductRepository;
+import org.example.cache_caffeine_spring_boot.service.CacheContentsPage;
 import org.example.cache_caffeine_spring_boot.service.ProductService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,6 +48,8 @@ class ProductIntegrationTest {
     private CacheManager cacheManager;
     @Autowired
     private TransactionTemplate transactionTemplate;
+    @Autowired
+    private CacheStatsEndpoint cacheStatsEndpoint;
 
     private Product testProduct;
 
@@ -159,6 +173,94 @@ class ProductIntegrationTest {
         assertEquals(2, thirdRequest.size());
     }
 
+    @Test
+    void productListCache_ShouldShareEntryForNearbyMinPrices() {
+        // Цены в базе: 100 и 200
+        Product cheapProduct = new Product();
+        cheapProduct.setName("Cheap Product");
+        cheapProduct.setPrice(100.0);
+        productService.createProduct(cheapProduct);
+        testProduct.setPrice(200.0);
+        productService.createProduct(testProduct);
+
+        // Запросы 150 и 180 возвращают одно и то же - ключом служит ближайшая цена 200
+        List<Product> first = productService.getProductsByMinPrice(150.0);
+        List<Product> second = productService.getProductsByMinPrice(180.0);
+
+        assertFalse(first.isEmpty());
+        assertSame(first, second);
+        var cacheContents = cacheContents("productList");
+        assertEquals(1, cacheContents.size());
+        assertTrue(cacheContents.containsKey(200.0));
+    }
+
+    @Test
+    void createProduct_ShouldEvictOnlyAffectedPriceLists() {
+        // Arrange: списки под ключами 1000 и 3000
+        testProduct.setPrice(1000.0);
+        productService.createProduct(testProduct);
+        Product premiumProduct = new Product();
+        premiumProduct.setName("Premium Product");
+        premiumProduct.setPrice(3000.0);
+        productService.createProduct(premiumProduct);
+        List<Product> fromNineHundred = productService.getProductsByMinPrice(900.0);
+        productService.getProductsByMinPrice(2500.0);
+
+        // Act: новый продукт за 2000 нужен только запросам с minPrice <= 2000
+        Product newProduct = new Product();
+        newProduct.setName("New Product");
+        newProduct.setPrice(2000.0);
+        Product savedProduct = productService.createProduct(newProduct);
+
+        // Assert
+        var listContents = cacheContents("productList");
+        assertFalse(listContents.containsKey(1000.0));
+        assertTrue(listContents.containsKey(3000.0));
+        assertTrue(cacheContents("products").containsKey(savedProduct.getId()));
+        List<Product> refreshed = productService.getProductsByMinPrice(900.0);
+        assertEquals(fromNineHundred.size() + 1, refreshed.size());
+    }
+
+    @Test
+    void updateProduct_ShouldEvictPriceListsAfterCommit() {
+        // Arrange: два продукта с одной ценой выше всех остальных в базе, список для 900 000 лежит под ключом 1 000 000
+        testProduct.setPrice(1_000_000.0);
+        Product updated = productService.createProduct(testProduct);
+        Product other = productService.createProduct(newProduct("Other Product", 1_000_000.0));
+        assertEquals(2, productService.getProductsByMinPrice(900_000.0).size());
+
+        // Act: пока транзакция обновления не закоммичена, другой поток кеширует список по старому индексу
+        transactionTemplate.executeWithoutResult(status -> {
+            updated.setPrice(500_000.0);
+            productService.updateProduct(updated);
+            CompletableFuture.runAsync(() -> productService.getProductsByMinPrice(900_000.0)).join();
+        });
+
+        // Assert: после коммита под тем же ключом нет списка с продуктом по старой цене
+        assertEquals(List.of(other.getId()), productService.getProductsByMinPrice(900_000.0).stream().map(Product::getId).toList());
+        productService.deleteProduct(updated.getId());
+        productService.deleteProduct(other.getId());
+    }
+
+    @Test
+    void deleteProduct_ShouldEvictPriceListsAfterCommit() {
+        // Arrange
+        testProduct.setPrice(1_000_000.0);
+        Product deleted = productService.createProduct(testProduct);
+        Product other = productService.createProduct(newProduct("Other Product", 1_000_000.0));
+        assertEquals(2, productService.getProductsByMinPrice(900_000.0).size());
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            productService.deleteProduct(deleted.getId());
+            CompletableFuture.runAsync(() -> productService.getProductsByMinPrice(900_000.0)).join();
+        });
+
+        // Assert
+        assertEquals(List.of(other.getId()), productService.getProductsByMinPrice(900_000.0).stream().map(Product::getId).toList());
+        productService.deleteProduct(other.getId());
+    }
+
     @Test
     void cacheStatistics_ShouldTrackHitsAndMisses() {
         // Создаем продукт через репозиторий (в обход очистки кеша)
@@ -204,6 +306,161 @@ class ProductIntegrationTest {
         assertEquals(1L, finalStats.get("missCount"), "Should have exactly 1 cache miss");
     }
 
+    @Test
+    void findByNameAndPrice_ShouldReuseProductEntryById() {
+        // Arrange
+        testProduct.setName("Secondary Key Product");
+        Product savedProduct = productService.createProduct(testProduct);
+
+        // Act
+        Optional<Product> byKey = productService.findByNameAndPrice("Secondary Key Product", 100.0);
+        Optional<Product> byId = productService.getProductById(savedProduct.getId());
+
+        // Assert: в "products" только ключ id, вторичный ключ хранит ссылку на него
+        assertTrue(byKey.isPresent());
+        assertSame(byKey.get(), byId.get());
+        assertEquals(savedProduct.getId(),
+                cacheContents("productKeys").get(new ProductKey("Secondary Key Product", 100.0)));
+        assertEquals(1, cacheContents("products").size());
+    }
+
+    @Test
+    void cacheSpecs_ShouldComeFromConfiguration() {
+        var products = ((CaffeineCache) cacheManager.getCache("products")).getNativeCache();
+        var productList = ((CaffeineCache) cacheManager.getCache("productList")).getNativeCache();
+        var other = ((CaffeineCache) cacheManager.getCache("unconfigured")).getNativeCache();
+
+        // Настройки из application.yml (cache.specs)
+        assertEquals(10_000L, products.policy().eviction().orElseThrow().getMaximum());
+        assertTrue(products.policy().refreshAfterWrite().isPresent());
+        assertTrue(productList.policy().eviction().orElseThrow().isWeighted());
+        // Неизвестное имя - настройки по умолчанию (cache.default-spec)
+        assertEquals(500L, other.policy().eviction().orElseThrow().getMaximum());
+    }
+
+    @Test
+    void getFromCache_ShouldNotLoadIntoLoadingCache() {
+        // Arrange: продукт есть в базе, но не в кеше; у products есть загрузчик (refresh-after-write)
+        Product saved = productRepository.save(newProduct("Uncached Product", 10.0));
+        Cache products = cacheManager.getCache("products");
+
+        // Act
+        Object cached = productService.getFromCache("products", saved.getId());
+
+        // Assert: диагностическое чтение ничего не загрузило, а обычный get(key) у LoadingCache загружает
+        assertNull(cached);
+        assertFalse(cacheContents("products").containsKey(saved.getId()));
+        assertEquals(saved.getId(), ((Product) products.get(saved.getId()).get()).getId());
+        assertNotNull(productService.getFromCache("products", saved.getId()));
+        productService.deleteProduct(saved.getId());
+    }
+
+    @Test
+    void cacheContentsPage_ShouldVisitEveryEntryOnce() {
+        // Arrange
+        for (long id = 1; id <= 7; id++) {
+            productService.putInCache("productKeys", new ProductKey("Paged " + id, 1.0), id);
+        }
+
+        // Act: обходим страницами по 3, добавляя запись в середине обхода
+        Set<Object> seen = new HashSet<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            CacheContentsPage page = productService.getCacheContentsPage("productKeys", cursor, 3);
+            page.entries().forEach(entry -> assertTrue(seen.add(entry.getKey()), "Повтор ключа " + entry.getKey()));
+            pageSizes.add(page.entries().size());
+            cursor = page.nextCursor();
+            if (pageSizes.size() == 1) {
+                productService.putInCache("productKeys", new ProductKey("Paged 8", 1.0), 8L);
+            }
+        } while (cursor != null);
+
+        // Assert: записи, которые были в кеше весь обход, отданы ровно по разу
+        for (long id = 1; id <= 7; id++) {
+            assertTrue(seen.contains(new ProductKey("Paged " + id, 1.0)));
+        }
+        assertTrue(pageSizes.stream().allMatch(size -> size <= 3));
+    }
+
+    @Test
+    void cacheStatsEndpoint_ShouldReportWindowedMetrics() {
+        // Arrange
+        Product savedProduct = productService.createProduct(testProduct);
+        productService.evictFromCache("products", savedProduct.getId());
+
+        // Act: промах с загрузкой, затем попадание
+        productService.getProductById(savedProduct.getId());
+        productService.getProductById(savedProduct.getId());
+
+        // Assert
+        CacheMetricsSnapshot snapshot = cacheStatsEndpoint.cache("products");
+        assertNotNull(snapshot);
+        assertTrue(snapshot.loadSuccessCount() >= 1);
+        assertTrue(snapshot.hitRate1m() > 0);
+        assertTrue(snapshot.evictionsByCause().containsKey("size"));
+        assertTrue(cacheStatsEndpoint.caches().keySet().containsAll(List.of("products", "productList", "productKeys")));
+    }
+
+    @Test
+    void getProductsByIds_ShouldServeHitsAndCacheLoadedProducts() {
+        // Arrange: первый продукт в кеше, второй только в базе
+        Product first = productService.createProduct(testProduct);
+        Product batchProduct = new Product();
+        batchProduct.setName("Batch Product");
+        batchProduct.setPrice(50.0);
+        Product second = transactionTemplate.execute(status -> productRepository.save(batchProduct));
+        Long missingId = Long.MAX_VALUE;
+
+        // Act
+        List<Product> result = productService.getProductsByIds(List.of(first.getId(), second.getId(), missingId));
+
+        // Assert
+        assertEquals(List.of(first.getId(), second.getId()), result.stream().map(Product::getId).toList());
+        var stats = productService.getCacheStats("products");
+        assertEquals(1L, stats.get("hitCount"));
+        assertEquals(2L, stats.get("missCount"));
+        var contents = cacheContents("products");
+        assertTrue(contents.containsKey(second.getId()));
+        assertTrue(contents.containsKey(missingId));
+    }
+
+    @Test
+    void cacheContentsPage_ShouldCapScansOnLargeCache() {
+        // Arrange: записей втрое больше, чем MAX_PAGES_PER_SCAN
+        int entries = ProductService.MAX_PAGES_PER_SCAN * 3;
+        for (long id = 1; id <= entries; id++) {
+            productService.putInCache("productKeys", new ProductKey("Capped " + id, 1.0), id);
+        }
+
+        // Act: страница в одну запись растягивается так, чтобы весь кеш прошелся за MAX_PAGES_PER_SCAN страниц
+        int pages = 0;
+        int visited = 0;
+        String cursor = null;
+        do {
+            CacheContentsPage page = productService.getCacheContentsPage("productKeys", cursor, 1);
+            visited += page.entries().size();
+            pages++;
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        productService.clearCache("productKeys");
+
+        // Assert
+        assertEquals(entries, visited);
+        assertTrue(pages <= ProductService.MAX_PAGES_PER_SCAN + 1, "Страниц: " + pages);
+    }
+
+    @Test
+    void cacheContentsPage_ShouldRejectUnknownCacheWithoutCreatingIt() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> productService.getCacheContentsPage("noSuchCache", null, 10));
+        assertThrows(IllegalArgumentException.class, () -> productService.getCacheStats("noSuchCache"));
+        assertThrows(IllegalArgumentException.class, () -> productService.clearCache("noSuchCache"));
+        assertThrows(IllegalArgumentException.class, () -> productService.evictFromCache("noSuchCache", 1L));
+        assertFalse(cacheManager.getCacheNames().contains("noSuchCache"));
+    }
+
     @Test
     void cacheName_ShouldBeAvailable() {
         List<String> cacheNames = productService.getCacheNames();
@@ -220,8 +477,27 @@ class ProductIntegrationTest {
         productService.getProductById(savedProduct.getId());
 
         // Проверяем содержимое кеша
-        var cacheContents = productService.getCacheContents("products");
+        var cacheContents = cacheContents("products");
         assertFalse(cacheContents.isEmpty());
         assertTrue(cacheContents.containsKey(savedProduct.getId()));
     }
-}
\ No newline at end of file
+
+    // Все содержимое кеша через постраничный обход (как его видит эндпоинт /cache/{cacheName}/contents)
+    private Map<Object, Object> cacheContents(String cacheName) {
+        Map<Object, Object> contents = new HashMap<>();
+        String cursor = null;
+        do {
+            CacheContentsPage page = productService.getCacheContentsPage(cacheName, cursor, 100);
+            page.entries().forEach(entry -> contents.put(entry.getKey(), entry.getValue()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return contents;
+    }
+
+    private static Product newProduct(String name, double price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setPrice(price);
+        return product;
+    }
+}
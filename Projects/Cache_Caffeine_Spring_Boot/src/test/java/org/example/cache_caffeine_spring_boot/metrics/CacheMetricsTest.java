@@ -0,0 +1,80 @@
+package org.example.cache_caffeine_spring_boot.metrics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private CacheMetrics metrics;
+    private Cache<Object, Object> cache;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new CacheMetrics("productList", registry);
+        cache = Caffeine.newBuilder()
+                .maximumWeight(5)
+                .weigher((key, value) -> ((List<?>) value).size())
+                .executor(Runnable::run)
+                .recordStats(() -> new MeteredStatsCounter(metrics))
+                .build();
+        metrics.bind(cache);
+    }
+
+    @Test
+    void snapshot_ShouldTrackRequestsAndLoads() {
+        // Act
+        cache.get(1.0, key -> List.of(1L, 2L));
+        cache.get(1.0, key -> List.of(1L, 2L));
+        assertThrows(IllegalStateException.class, () -> cache.get(2.0, key -> {
+            throw new IllegalStateException("db is down");
+        }));
+
+        // Assert
+        CacheMetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.hitCount());
+        assertEquals(2, snapshot.missCount());
+        assertEquals(1.0 / 3, snapshot.hitRate1m(), 1e-9);
+        assertEquals(1, snapshot.loadSuccessCount());
+        assertEquals(1, snapshot.loadFailureCount());
+        assertEquals(2, snapshot.weightedSize());
+        // Стандартная статистика Caffeine тоже работает
+        assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    void snapshot_ShouldCountEvictionsByCause() {
+        // Act: общий вес 6 при лимите 5 - одна запись вытесняется по размеру
+        cache.put(1.0, List.of(1L, 2L, 3L));
+        cache.put(2.0, List.of(4L, 5L, 6L));
+        cache.cleanUp();
+
+        // Assert
+        CacheMetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(1L, snapshot.evictionsByCause().get("size"));
+        assertEquals(0L, snapshot.evictionsByCause().get("expired"));
+        assertEquals(3, snapshot.evictionWeight());
+        assertEquals(3, snapshot.weightedSize());
+    }
+
+    @Test
+    void meters_ShouldBePublishedToRegistry() {
+        // Act
+        cache.get(1.0, key -> List.of(1L));
+
+        // Assert
+        assertEquals(1.0, registry.get("cache.stats.requests").tag("cache", "productList").tag("result", "miss")
+                .counter().count());
+        assertEquals(1, registry.get("cache.stats.load").tag("result", "success").timer().count());
+        assertEquals(0.0, registry.get("cache.stats.hit.ratio").tag("window", "5m").gauge().value());
+        assertEquals(1.0, registry.get("cache.stats.weighted.size").gauge().value());
+    }
+}
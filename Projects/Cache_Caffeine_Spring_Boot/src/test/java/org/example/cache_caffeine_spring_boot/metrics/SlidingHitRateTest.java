@@ -0,0 +1,59 @@
+package org.example.cache_caffeine_spring_boot.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingHitRateTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private SlidingHitRate hitRate;
+
+    @BeforeEach
+    void setUp() {
+        hitRate = new SlidingHitRate(Duration.ofMinutes(15), now::get);
+    }
+
+    @Test
+    void hitRate_ShouldBeNaNWithoutRequests() {
+        assertTrue(Double.isNaN(hitRate.hitRate(Duration.ofMinutes(1))));
+    }
+
+    @Test
+    void hitRate_ShouldOnlyCountRequestsInsideWindow() {
+        // Arrange: 10 минут назад только промахи, сейчас только попадания
+        hitRate.recordMisses(30);
+        now.addAndGet(Duration.ofMinutes(10).toNanos());
+        hitRate.recordHits(10);
+
+        // Assert
+        assertEquals(1.0, hitRate.hitRate(Duration.ofMinutes(1)));
+        assertEquals(1.0, hitRate.hitRate(Duration.ofMinutes(5)));
+        assertEquals(0.25, hitRate.hitRate(Duration.ofMinutes(15)));
+    }
+
+    @Test
+    void hitRate_ShouldForgetSlotsOlderThanLongestWindow() {
+        // Arrange: через 20 минут слот переиспользуется и обнуляется
+        hitRate.recordMisses(100);
+        now.addAndGet(Duration.ofMinutes(20).toNanos());
+        hitRate.recordHits(1);
+
+        // Assert
+        assertEquals(1.0, hitRate.hitRate(Duration.ofMinutes(15)));
+    }
+
+    @Test
+    void hitRate_ShouldWorkWithNegativeClock() {
+        // System.nanoTime() может быть отрицательным
+        now.set(-Duration.ofHours(1).toNanos());
+        hitRate.recordHits(3);
+        hitRate.recordMisses(1);
+
+        assertEquals(0.75, hitRate.hitRate(Duration.ofMinutes(1)));
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.cache_caffeine_spring_boot.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheCursorTest {
+
+    @Test
+    void encode_ShouldRoundTrip() {
+        CacheCursor cursor = CacheCursor.of("Phone:1000");
+
+        assertEquals(cursor, CacheCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void precedes_ShouldFollowKeyOrder() {
+        CacheCursor cursor = CacheCursor.of(5L);
+
+        assertTrue(cursor.precedes(6L));
+        assertFalse(cursor.precedes(5L));
+        assertFalse(cursor.precedes(4L));
+        // Одинаковый хеш, разный класс ключа
+        assertNotEquals(cursor.precedes(5), CacheCursor.of(5).precedes(5L));
+    }
+
+    @Test
+    void decode_ShouldRejectGarbage() {
+        assertThrows(IllegalArgumentException.class, () -> CacheCursor.decode("not a cursor!"));
+        assertThrows(IllegalArgumentException.class, () -> CacheCursor.decode("bm8tc2VwYXJhdG9y"));
+    }
+}
@@ -1,16 +1,24 @@
 package org.example.cache_caffeine_spring_boot.service;
 
+import org.example.cache_caffeine_spring_boot.config.CaffeineCachesProperties;
+import org.example.cache_caffeine_spring_boot.index.ProductPriceIndex;
 import org.example.cache_caffeine_spring_boot.model.Product;
+import org.example.cache_caffeine_spring_boot.model.ProductKey;
+import org.example.cache_caffeine_spring_boot.repository.ProductPrice;
 import org.example.cache_caffeine_spring_boot.repository.ProductRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -21,6 +29,12 @@ class ProductServiceTest {
 
     @Mock
     private ProductRepository productRepository;
+    @Spy
+    private ProductPriceIndex productPriceIndex = new ProductPriceIndex();
+    @Spy
+    private CacheManager cacheManager = new CaffeineCacheManager();
+    @Spy
+    private CaffeineCachesProperties cachesProperties = new CaffeineCachesProperties();
     @InjectMocks
     private ProductService productService;
 
@@ -54,17 +68,144 @@ class ProductServiceTest {
     void getProductsByMinPrice_ShouldReturnFilteredList() {
         // Arrange
         Product product2 = new Product();
+        product2.setId(2L);
         product2.setPrice(200.0);
-        List<Product> allProducts = Arrays.asList(testProduct, product2);
-        when(productRepository.findAll()).thenReturn(allProducts);
+        productPriceIndex.rebuild(() -> Map.of(1L, 100.0, 2L, 200.0));
+        when(productRepository.findAllById(List.of(2L))).thenReturn(List.of(product2));
 
         // Act
         List<Product> result = productService.getProductsByMinPrice(150.0);
 
-        // Assert
+        // Assert: подходящие id берутся из индекса, полного прохода по таблице нет
         assertEquals(1, result.size());
         assertEquals(200.0, result.get(0).getPrice());
-        verify(productRepository).findAll();
+        verify(productRepository).findAllById(List.of(2L));
+        verify(productRepository, never()).findAll();
+    }
+
+    @Test
+    void getProductsByMinPrice_ShouldBuildListFromCacheKey() {
+        // Arrange: ключ для 150 - цена 200; сразу после его вычисления в индекс попадает продукт за 160
+        Product product2 = new Product();
+        product2.setId(2L);
+        product2.setPrice(200.0);
+        productPriceIndex.rebuild(() -> Map.of(1L, 100.0, 2L, 200.0));
+        doAnswer(invocation -> {
+            Object key = invocation.callRealMethod();
+            productPriceIndex.put(3L, 160.0);
+            return key;
+        }).when(productPriceIndex).cacheKey(150.0);
+        when(productRepository.findAllById(List.of(2L))).thenReturn(List.of(product2));
+
+        // Act
+        List<Product> result = productService.getProductsByMinPrice(150.0);
+
+        // Assert: под ключом 200 лежат только продукты с ценой >= 200
+        assertEquals(List.of(product2), result);
+        assertEquals(List.of(product2), cacheManager.getCache("productList").get(200.0).get());
+    }
+
+    @Test
+    void rebuildPriceIndex_ShouldLoadPricesAndClearListCache() {
+        // Arrange: до готовности индекса в productList попал пустой список
+        productService.getProductsByMinPrice(150.0);
+        ProductPrice price = mock(ProductPrice.class);
+        when(price.getId()).thenReturn(2L);
+        when(price.getPrice()).thenReturn(200.0);
+        when(productRepository.findAllPrices()).thenReturn(List.of(price));
+
+        // Act
+        productService.rebuildPriceIndex();
+
+        // Assert: из базы прочитаны только цены, устаревший список удален
+        assertEquals(List.of(2L), productPriceIndex.idsWithMinPrice(150.0));
+        assertNull(cacheManager.getCache("productList").get(Double.POSITIVE_INFINITY));
+        verify(productRepository, never()).findAll();
+    }
+
+    @Test
+    void getProductsByMinPrice_ShouldSkipRepositoryWhenNothingMatches() {
+        // Arrange
+        productPriceIndex.rebuild(() -> Map.of(1L, 100.0));
+
+        // Act
+        List<Product> result = productService.getProductsByMinPrice(500.0);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void forEachProductByMinPrice_ShouldCacheShortList() {
+        // Arrange
+        Product product2 = new Product();
+        product2.setId(2L);
+        product2.setPrice(200.0);
+        productPriceIndex.rebuild(() -> Map.of(1L, 100.0, 2L, 200.0));
+        when(productRepository.findAllById(List.of(2L))).thenReturn(List.of(product2));
+
+        // Act
+        List<Product> first = new ArrayList<>();
+        productService.forEachProductByMinPrice(150.0, first::add);
+        List<Product> second = new ArrayList<>();
+        productService.forEachProductByMinPrice(150.0, second::add);
+
+        // Assert: второй вызов берет список из productList под ключом ближайшей цены
+        assertEquals(List.of(product2), first);
+        assertEquals(List.of(product2), second);
+        assertNotNull(cacheManager.getCache("productList").get(200.0));
+        verify(productRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void forEachProductByMinPrice_ShouldStreamLongListWithoutCaching() {
+        // Arrange: порог 1, а подходят оба продукта
+        cachesProperties.setMaxCachedListSize(1);
+        Product product2 = new Product();
+        product2.setId(2L);
+        product2.setPrice(200.0);
+        productPriceIndex.rebuild(() -> Map.of(1L, 100.0, 2L, 200.0));
+        when(productRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(product2, testProduct));
+
+        // Act
+        List<Product> result = new ArrayList<>();
+        productService.forEachProductByMinPrice(50.0, result::add);
+
+        // Assert: порядок индекса (по возрастанию цены), в кеш список не попал
+        assertEquals(List.of(testProduct, product2), result);
+        assertNull(cacheManager.getCache("productList").get(100.0));
+        assertFalse(productService.fitsInListCache(50.0));
+    }
+
+    @Test
+    void getProductsByIds_ShouldLoadOnlyMissesWithOneQuery() {
+        // Arrange: продукт 1 уже в кеше, 2 есть в базе, 3 нет нигде
+        Product product2 = new Product();
+        product2.setId(2L);
+        product2.setName("Second Product");
+        cacheManager.getCache("products").put(1L, testProduct);
+        when(productRepository.findAllById(List.of(2L, 3L))).thenReturn(List.of(product2));
+
+        // Act
+        List<Product> result = productService.getProductsByIds(List.of(2L, 1L, 3L, 2L));
+        List<Product> cached = productService.getProductsByIds(List.of(1L, 2L, 3L));
+
+        // Assert: порядок запроса, без повторов; второй вызов целиком из кеша
+        assertEquals(List.of(product2, testProduct), result);
+        assertEquals(List.of(testProduct, product2), cached);
+        assertSame(product2, cacheManager.getCache("products").get(2L).get());
+        assertNull(cacheManager.getCache("products").get(3L).get());
+        verify(productRepository, times(1)).findAllById(any());
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    void getProductsByIds_ShouldRejectTooManyIds() {
+        List<Long> ids = java.util.stream.LongStream.rangeClosed(1, ProductService.MAX_BATCH_SIZE + 1).boxed().toList();
+
+        assertThrows(IllegalArgumentException.class, () -> productService.getProductsByIds(ids));
+        verifyNoInteractions(productRepository);
     }
 
     @Test
@@ -84,7 +225,7 @@ class ProductServiceTest {
     @Test
     void updateProduct_ShouldUpdateProduct() {
         // Arrange
-        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+        when(productRepository.saveAndFlush(any(Product.class))).thenReturn(testProduct);
 
         // Act
         Product result = productService.updateProduct(testProduct);
@@ -92,7 +233,7 @@ class ProductServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals(testProduct.getName(), result.getName());
-        verify(productRepository).save(testProduct);
+        verify(productRepository).saveAndFlush(testProduct);
     }
 
     @Test
@@ -110,15 +251,40 @@ class ProductServiceTest {
     @Test
     void findByNameAndPrice_ShouldReturnProduct() {
         // Arrange
-        when(productRepository.findAll()).thenReturn(List.of(testProduct));
+        when(productRepository.findIdsByNameAndPrice("Test Product", 100.0)).thenReturn(List.of(1L));
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
 
         // Act
         Optional<Product> result = productService.findByNameAndPrice("Test Product", 100.0);
+        Optional<Product> cached = productService.findByNameAndPrice("Test Product", 100.0);
 
-        // Assert
+        // Assert: второй вызов берет id из кеша вторичного ключа, а продукт - из кеша по id
         assertTrue(result.isPresent());
         assertEquals(testProduct.getName(), result.get().getName());
         assertEquals(testProduct.getPrice(), result.get().getPrice());
-        verify(productRepository).findAll();
+        assertSame(result.get(), cached.get());
+        assertSame(testProduct, cacheManager.getCache("products").get(1L).get());
+        verify(productRepository).findIdsByNameAndPrice("Test Product", 100.0);
+        verify(productRepository).findById(1L);
+        verify(productRepository, never()).findAll();
+    }
+
+    @Test
+    void findByNameAndPrice_ShouldRequeryWhenCachedProductNoLongerMatches() {
+        // Arrange: в кеше по id лежит продукт, который уже переименовали
+        Product renamed = new Product();
+        renamed.setId(2L);
+        renamed.setName("Renamed Product");
+        renamed.setPrice(100.0);
+        cacheManager.getCache("productKeys").put(new ProductKey("Test Product", 100.0), 2L);
+        cacheManager.getCache("products").put(2L, renamed);
+        when(productRepository.findIdsByNameAndPrice("Test Product", 100.0)).thenReturn(List.of());
+
+        // Act
+        Optional<Product> result = productService.findByNameAndPrice("Test Product", 100.0);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        assertNull(cacheManager.getCache("productKeys").get(new ProductKey("Test Product", 100.0)));
     }
-}
\ No newline at end of file
+}